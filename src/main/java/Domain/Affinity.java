@@ -0,0 +1,50 @@
+package Domain;
+
+import jakarta.persistence.*;
+
+/**
+ * How much a reader engages with an author: a weighted count of the reader's likes
+ * and comments on the author's posts. Only ever incremented (see FeedRankingService).
+ */
+@Entity
+@IdClass(AffinityId.class)
+@Table(name = "affinity")
+public class Affinity {
+
+    @Id
+    @Column(name = "reader_id")
+    private Long readerId;
+
+    @Id
+    @Column(name = "author_id")
+    private Long authorId;
+
+    @Column(nullable = false)
+    private int weight;
+
+    public Affinity() {}
+
+    public Long getReaderId() {
+        return readerId;
+    }
+
+    public void setReaderId(Long readerId) {
+        this.readerId = readerId;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+}
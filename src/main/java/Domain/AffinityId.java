@@ -0,0 +1,42 @@
+package Domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite key of {@link Affinity}.
+ */
+public class AffinityId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long readerId;
+    private Long authorId;
+
+    public AffinityId() {}
+
+    public AffinityId(Long readerId, Long authorId) {
+        this.readerId = readerId;
+        this.authorId = authorId;
+    }
+
+    public Long getReaderId() {
+        return readerId;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AffinityId)) return false;
+        AffinityId that = (AffinityId) o;
+        return Objects.equals(readerId, that.readerId) && Objects.equals(authorId, that.authorId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(readerId, authorId);
+    }
+}
@@ -1,11 +1,18 @@
 package Domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "connections")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "connections")
+@Table(
+        name = "connections",
+        uniqueConstraints = @UniqueConstraint(name = "uk_connection_sender_receiver", columnNames = {"sender_id", "receiver_id"})
+)
 public class Connection {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,6 +1,8 @@
 package Domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
@@ -9,6 +11,8 @@ import java.util.ArrayList;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "groups")
 @Table(name = "groups")
 public class Group {
 
@@ -34,6 +38,7 @@ public class Group {
 
     /** actual members of the group */
     @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "group-members")
     @JoinTable(
             name = "group_members",
             joinColumns = @JoinColumn(name = "group_id"),
@@ -44,6 +49,7 @@ public class Group {
 
     /** pending join requests (only used when closed=true) */
     @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "group-join-requests")
     @JoinTable(
             name = "group_join_requests",
             joinColumns = @JoinColumn(name = "group_id"),
@@ -52,6 +58,7 @@ public class Group {
     private Set<User> joinRequests = new HashSet<>();
 
     @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "group-admins")
     @JoinTable(
             name = "group_admins",
             joinColumns = @JoinColumn(name = "group_id"),
@@ -13,6 +13,7 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@Table(indexes = @Index(name = "idx_post_author_created", columnList = "author_id, createdAt"))
 public class Post {
     @Id @GeneratedValue
     private Long id;
@@ -26,7 +27,25 @@ public class Post {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
-    @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    /**
+     * Denormalized counters, only ever changed with bulk UPDATE ... SET x = x + 1
+     * (see PostService), never through entity updates, so a merge can't overwrite them.
+     * Null only on rows written before the columns existed.
+     */
+    @Column(updatable = false)
+    private Integer likeCount = 0;
+
+    @Column(updatable = false)
+    private Integer commentCount = 0;
+
+    /**
+     * Engagement plus recency, precomputed for the ranked feed (see FeedRankingService).
+     * Set on insert and rewritten by bulk UPDATE whenever the counters change.
+     */
+    @Column(updatable = false)
+    private Double rankScore;
+
+    @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Comment> comments = new ArrayList<>();
 
     @ManyToMany
@@ -94,6 +113,30 @@ public class Post {
         this.updatedAt = updatedAt;
     }
 
+    public Integer getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(Integer likeCount) {
+        this.likeCount = likeCount;
+    }
+
+    public Integer getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(Integer commentCount) {
+        this.commentCount = commentCount;
+    }
+
+    public Double getRankScore() {
+        return rankScore;
+    }
+
+    public void setRankScore(Double rankScore) {
+        this.rankScore = rankScore;
+    }
+
     public List<Comment> getComments() {
         return comments;
     }
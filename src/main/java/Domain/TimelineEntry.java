@@ -0,0 +1,74 @@
+package Domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per (timeline owner, post): the precomputed home feed written by
+ * fan-out when a post is created, so a feed read is a lookup by owner.
+ */
+@Entity
+@IdClass(TimelineEntryId.class)
+@Table(
+        name = "timeline",
+        indexes = @Index(name = "idx_timeline_owner_created", columnList = "owner_id, created_at, post_id")
+)
+public class TimelineEntry {
+
+    @Id
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    /** copy of Post.createdAt so the timeline can be ordered without touching the post table */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public TimelineEntry() {}
+
+    public TimelineEntry(Long ownerId, Post post) {
+        this.ownerId = ownerId;
+        this.postId = post.getId();
+        this.authorId = post.getAuthor().getId();
+        this.createdAt = post.getCreatedAt();
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,42 @@
+package Domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite key of {@link TimelineEntry}.
+ */
+public class TimelineEntryId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long ownerId;
+    private Long postId;
+
+    public TimelineEntryId() {}
+
+    public TimelineEntryId(Long ownerId, Long postId) {
+        this.ownerId = ownerId;
+        this.postId = postId;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TimelineEntryId)) return false;
+        TimelineEntryId that = (TimelineEntryId) o;
+        return Objects.equals(ownerId, that.ownerId) && Objects.equals(postId, that.postId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ownerId, postId);
+    }
+}
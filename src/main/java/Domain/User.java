@@ -1,8 +1,11 @@
 package Domain;
 
 import Domain.Role;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Setter;
 
 import java.util.ArrayList;
@@ -11,6 +14,8 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Table(name = "user_table")
 public class User {
 
@@ -69,6 +74,7 @@ public class User {
     @Column(unique = true)
     private String email;
 
+    @JsonIgnore
     private String password;
     private String name;
     private String bio;
@@ -77,11 +83,20 @@ public class User {
     private Role role; // Enum for 'user' or 'admin'
 
     // Getters and Setters
-    @ManyToMany(fetch = FetchType.EAGER)
+    /**
+     * Accepted friendships, stored in both directions (one row per direction) so every
+     * friendship question is a probe on (user_id, friend_id). Written by
+     * ConnectionService when a request is accepted, not through this collection.
+     * Kept out of the second-level cache for that reason: JDBC writes bypass its invalidation.
+     * Lazy and never serialized: loading it eagerly pulled in friends of friends recursively.
+     */
+    @JsonIgnore
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "friendship",
             joinColumns = @JoinColumn(name = "user_id"),
-            inverseJoinColumns = @JoinColumn(name = "friend_id")
+            inverseJoinColumns = @JoinColumn(name = "friend_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_friendship_user_friend", columnNames = {"user_id", "friend_id"})
     )
     private List<User> friends = new ArrayList<>();
 
@@ -3,8 +3,12 @@ package Services.UserServices;
 import Domain.Connection;
 import Domain.Status;
 import Domain.User;
+import app.DTO.FriendSuggestionDTO;
+import app.DTO.UserSummaryDTO;
 import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.jms.JMSContext;
 import jakarta.jms.Queue;
@@ -12,9 +16,21 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import notificationModule.NotificationEvent;
 import notificationModule.NotificationProducer;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
 
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Stateless
 public class ConnectionService {
@@ -30,23 +46,148 @@ public class ConnectionService {
     @PersistenceContext
     private EntityManager em;
 
+    @EJB
+    private TimelineService timelineService;
+    @Inject
+    private Event<FeedChangeEvent> feedChanges;
+    @EJB
+    private SocialGraphIndex socialGraph;
+    @Inject
+    private Event<FriendshipAccepted> friendships;
+    @EJB
+    private UserSearchIndex userSearch;
+
+
+    /** Most ids a single batch call accepts. */
+    public static final int MAX_BATCH = 1000;
+
+    /**
+     * A new pending request, unless one already exists in this direction (in any state)
+     * or in the other direction (pending or accepted). Both probes hit the unique
+     * (sender_id, receiver_id) index; the constraint itself settles concurrent inserts.
+     */
+    private static final String INSERT_REQUEST = """
+            INSERT INTO connections (sender_id, receiver_id, status, createdAt)
+            SELECT ?, ?, 'PENDING', ?
+            WHERE NOT EXISTS (SELECT 1 FROM connections WHERE sender_id = ? AND receiver_id = ?)
+            AND NOT EXISTS (SELECT 1 FROM connections WHERE sender_id = ? AND receiver_id = ? AND status IN ('PENDING', 'ACCEPTED'))
+            """;
 
-    public void sendFriendRequest(Long senderId, Long receiverId) {
-        Connection connection = new Connection();
-        User sender = em.find(User.class, senderId);
-        User receiver = em.find(User.class, receiverId);
-        connection.setSender(sender);
-        connection.setReceiver(receiver);
-        connection.setStatus(Status.PENDING);
-        em.persist(connection);
+    /** SQLState of a unique constraint violation. */
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final String INSERT_FRIENDSHIP_EDGE = """
+            INSERT INTO friendship (user_id, friend_id)
+            SELECT ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM friendship WHERE user_id = ? AND friend_id = ?)
+            """;
+
+    /**
+     * @return false if the request was suppressed as a duplicate (or the users are already friends)
+     */
+    public boolean sendFriendRequest(Long senderId, Long receiverId) {
+        return !sendFriendRequests(senderId, List.of(receiverId)).isEmpty();
+    }
+
+    /**
+     * Send friend requests from one user to many in a single JDBC batch.
+     * Self-requests, unknown users, existing friends and duplicate requests are skipped.
+     *
+     * @return the receivers that actually got a new request (and a notification)
+     */
+    public List<Long> sendFriendRequests(Long senderId, Collection<Long> receiverIds) {
+        List<Long> candidates = receiverIds.stream()
+                .filter(id -> id != null && !id.equals(senderId) && !socialGraph.areFriends(senderId, id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> receivers = em.createQuery("SELECT u.id FROM User u WHERE u.id IN :ids", Long.class)
+                .setParameter("ids", candidates)
+                .getResultList();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> requested = new ArrayList<>();
+        em.flush();
+        em.unwrap(Session.class).doWork(jdbc -> {
+            try (PreparedStatement insert = jdbc.prepareStatement(INSERT_REQUEST)) {
+                for (Long receiverId : receivers) {
+                    bindRequest(insert, senderId, receiverId, now);
+                    insert.addBatch();
+                }
+                Savepoint beforeBatch = jdbc.setSavepoint();
+                int[] inserted;
+                try {
+                    inserted = insert.executeBatch();
+                    jdbc.releaseSavepoint(beforeBatch);
+                } catch (BatchUpdateException e) {
+                    // a concurrent request for one of the pairs won the unique constraint;
+                    // redo the batch row by row so only that pair is skipped
+                    jdbc.rollback(beforeBatch);
+                    inserted = insertOneByOne(jdbc, insert, senderId, receivers, now);
+                }
+                for (int i = 0; i < inserted.length; i++) {
+                    if (inserted[i] > 0) {
+                        requested.add(receivers.get(i));
+                    }
+                }
+            }
+        });
+
+        if (!requested.isEmpty()) {
+            notifyRequested(em.find(User.class, senderId), requested);
+        }
+        return requested;
+    }
 
-        if (!senderId.equals(receiverId)) {
+    private static void bindRequest(PreparedStatement insert, Long senderId, Long receiverId, Timestamp now)
+            throws SQLException {
+        insert.setLong(1, senderId);
+        insert.setLong(2, receiverId);
+        insert.setTimestamp(3, now);
+        insert.setLong(4, senderId);
+        insert.setLong(5, receiverId);
+        insert.setLong(6, receiverId);
+        insert.setLong(7, senderId);
+    }
+
+    /** Rows that hit a unique constraint count as not inserted; other failures propagate. */
+    private static int[] insertOneByOne(java.sql.Connection jdbc, PreparedStatement insert, Long senderId,
+                                        List<Long> receivers, Timestamp now) throws SQLException {
+        insert.clearBatch();
+        int[] inserted = new int[receivers.size()];
+        for (int i = 0; i < receivers.size(); i++) {
+            bindRequest(insert, senderId, receivers.get(i), now);
+            Savepoint beforeRow = jdbc.setSavepoint();
+            try {
+                inserted[i] = insert.executeUpdate();
+                jdbc.releaseSavepoint(beforeRow);
+            } catch (SQLException e) {
+                if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+                jdbc.rollback(beforeRow);
+            }
+        }
+        return inserted;
+    }
+
+    private void notifyRequested(User sender, List<Long> receiverIds) {
+        List<Object[]> requests = em.createQuery("""
+        SELECT c.id, c.receiver.id FROM Connection c
+        WHERE c.sender.id = :uid AND c.receiver.id IN :receivers
+        """, Object[].class)
+                .setParameter("uid", sender.getId())
+                .setParameter("receivers", receiverIds)
+                .getResultList();
+        for (Object[] request : requests) {
             NotificationEvent event = new NotificationEvent();
             event.setEventType("FRIEND_REQUEST");
-            event.setFromUserId(senderId);
-            event.setToUserId(receiverId);
-            event.setMessage(sender.getName() + " sent you a friend request.");
-            event.setPostId(connection.getId());
+            event.setFromUserId(sender.getId());
+            event.setToUserId((Long) request[1]);
+            event.setActorName(sender.getName());
+            event.setPostId((Long) request[0]);
 
             notificationProducer.sendNotification(event);
         }
@@ -58,66 +199,269 @@ public class ConnectionService {
         if (connection != null && connection.getStatus()== Status.PENDING) {
             connection.setStatus(Status.valueOf(accept ? "ACCEPTED" : "REJECTED"));
             em.merge(connection);
+
+            if (accept) {
+                long[] pair = {connection.getSender().getId(), connection.getReceiver().getId()};
+                addFriendships(List.of(pair));
+                onAccepted(List.of(pair));
+            }
         }
     }
 
+    /**
+     * Accept or reject many pending requests addressed to {@code receiverId} in one
+     * transaction: one bulk status update and one JDBC batch of friendship rows.
+     * Ids that are not pending requests to this user are skipped.
+     *
+     * @return the requests that were answered
+     */
+    public List<Long> respondToRequests(Long receiverId, Collection<Long> requestIds, boolean accept) {
+        List<Object[]> pending = em.createQuery("""
+        SELECT c.id, c.sender.id FROM Connection c
+        WHERE c.id IN :ids AND c.receiver.id = :uid AND c.status = :pending
+        """, Object[].class)
+                .setParameter("ids", requestIds)
+                .setParameter("uid", receiverId)
+                .setParameter("pending", Status.PENDING)
+                .getResultList();
+        if (pending.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> answered = pending.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        em.createQuery("UPDATE Connection c SET c.status = :status WHERE c.id IN :ids AND c.status = :pending")
+                .setParameter("status", accept ? Status.ACCEPTED : Status.REJECTED)
+                .setParameter("ids", answered)
+                .setParameter("pending", Status.PENDING)
+                .executeUpdate();
+
+        if (accept) {
+            List<long[]> pairs = pending.stream()
+                    .map(row -> new long[]{(Long) row[1], receiverId})
+                    .collect(Collectors.toList());
+            addFriendships(pairs);
+            onAccepted(pairs);
+        }
+        return answered;
+    }
+
+    /** Timelines, feed cache and graph index follow a newly accepted friendship. */
+    private void onAccepted(List<long[]> pairs) {
+        for (long[] pair : pairs) {
+            timelineService.backfill(pair[0], pair[1]);
+            timelineService.backfill(pair[1], pair[0]);
+            feedChanges.fire(FeedChangeEvent.friendshipChanged(pair[0], pair[1]));
+            friendships.fire(new FriendshipAccepted(pair[0], pair[1]));
+        }
+    }
+
+    /**
+     * Record accepted friendships in the symmetric friendship table, both directions,
+     * in one JDBC batch. A second accepted request between the same two users adds nothing.
+     */
+    private void addFriendships(List<long[]> pairs) {
+        em.flush();
+        em.unwrap(Session.class).doWork(jdbc -> {
+            try (PreparedStatement insert = jdbc.prepareStatement(INSERT_FRIENDSHIP_EDGE)) {
+                for (long[] pair : pairs) {
+                    if (pair[0] == pair[1]) {
+                        continue;
+                    }
+                    addEdge(insert, pair[0], pair[1]);
+                    addEdge(insert, pair[1], pair[0]);
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    private static void addEdge(PreparedStatement insert, long userId, long friendId) throws SQLException {
+        insert.setLong(1, userId);
+        insert.setLong(2, friendId);
+        insert.setLong(3, userId);
+        insert.setLong(4, friendId);
+        insert.addBatch();
+    }
+
+    /**
+     * Make sure the unique (sender_id, receiver_id) constraint exists. hbm2ddl tries to add it
+     * before this runs and gives up quietly while duplicates remain, so these are dropped
+     * first and the constraint is added here. Per pair it keeps the accepted row if any, else
+     * the pending one, else the oldest. Skipped once the constraint exists.
+     */
+    public void enforceUniqueConnections() {
+        Number existing = (Number) em.createNativeQuery("""
+                        SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS
+                        WHERE UPPER(TABLE_NAME) = 'CONNECTIONS' AND UPPER(CONSTRAINT_NAME) = 'UK_CONNECTION_SENDER_RECEIVER'
+                        """)
+                .getSingleResult();
+        if (existing.longValue() > 0) {
+            return;
+        }
+        em.createQuery("""
+                DELETE FROM Connection c
+                WHERE EXISTS (
+                    SELECT 1 FROM Connection d
+                    WHERE d.sender = c.sender AND d.receiver = c.receiver AND d.id <> c.id
+                    AND (CASE d.status WHEN :accepted THEN 0 WHEN :pending THEN 1 ELSE 2 END
+                         < CASE c.status WHEN :accepted THEN 0 WHEN :pending THEN 1 ELSE 2 END
+                         OR (d.status = c.status AND d.id < c.id))
+                )
+                """)
+                .setParameter("accepted", Status.ACCEPTED)
+                .setParameter("pending", Status.PENDING)
+                .executeUpdate();
+        em.createNativeQuery("""
+                        ALTER TABLE connections ADD CONSTRAINT IF NOT EXISTS uk_connection_sender_receiver
+                        UNIQUE (sender_id, receiver_id)
+                        """)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Connection.class)
+                .executeUpdate();
+    }
+
+    /**
+     * One-off population of the friendship table from accepted connections.
+     * Only runs when the table is still empty (first deployment).
+     */
+    public void rebuildFriendshipsIfEmpty() {
+        boolean empty = em.createNativeQuery("SELECT 1 FROM friendship")
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+        if (!empty) {
+            return;
+        }
+        em.createNativeQuery("""
+                INSERT INTO friendship (user_id, friend_id)
+                SELECT sender_id, receiver_id FROM connections
+                WHERE status = 'ACCEPTED' AND sender_id <> receiver_id
+                UNION
+                SELECT receiver_id, sender_id FROM connections
+                WHERE status = 'ACCEPTED' AND sender_id <> receiver_id
+                """)
+                // without a declared space Hibernate evicts every cache region for a native write
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("friendship")
+                .executeUpdate();
+    }
+
     public List<Connection> getPendingRequests(Long userId) {
         return em.createQuery("SELECT c FROM Connection c WHERE c.receiver.id = :uid AND c.status = 'PENDING'", Connection.class)
                 .setParameter("uid", userId)
                 .getResultList();
     }
 
-    public List<User> getFriends(Long userId) {
-        List<User> sent = em.createQuery("""
-        SELECT c.receiver FROM Connection c
-        WHERE c.sender.id = :uid AND c.status = 'ACCEPTED'
-        """, User.class)
-                .setParameter("uid", userId)
-                .getResultList();
+    /**
+     * Query cache region for lookups of users by friend id. Only queries over the users
+     * table belong here: the connection and friendship tables are also written by JDBC
+     * batches, which the query cache would not notice.
+     */
+    private static final String FRIEND_LOOKUPS = "friend-lookups";
 
-        List<User> received = em.createQuery("""
-        SELECT c.sender FROM Connection c
-        WHERE c.receiver.id = :uid AND c.status = 'ACCEPTED'
-        """, User.class)
-                .setParameter("uid", userId)
+    public List<UserSummaryDTO> getFriends(Long userId) {
+        List<Long> ids = getFriendIds(userId);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("SELECT new app.DTO.UserSummaryDTO(u.id, u.name) FROM User u WHERE u.id IN :ids", UserSummaryDTO.class)
+                .setParameter("ids", ids)
+                .setHint("org.hibernate.cacheable", true)
+                .setHint("org.hibernate.cacheRegion", FRIEND_LOOKUPS)
                 .getResultList();
+    }
 
-        sent.addAll(received);
-        return sent;
+    /** Same as {@link #getFriends} but IDs only, straight from the in-memory graph. */
+    public List<Long> getFriendIds(Long userId) {
+        long[] friends = socialGraph.friendIds(userId);
+        List<Long> ids = new ArrayList<>(friends.length + 1);
+        for (long id : friends) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    public boolean areFriends(Long userId, Long otherUserId) {
+        return socialGraph.areFriends(userId, otherUserId);
+    }
+
+    public int getFriendCount(Long userId) {
+        return socialGraph.friendCount(userId);
     }
 
     public User findUserById(Long senderId) {
         return em.find(User.class, senderId);
     }
 
-    public List<User> searchUsers(String searchTerm) {
-        String query = "SELECT u FROM User u WHERE u.name LIKE :searchTerm OR u.email LIKE :searchTerm";
-        return em.createQuery(query, User.class)
-                .setParameter("searchTerm", "%" + searchTerm + "%")
-                .getResultList();
-    }
+    /** Search results returned when the client does not ask for a number. */
+    public static final int DEFAULT_SEARCH_RESULTS = 20;
+    public static final int MAX_SEARCH_RESULTS = 100;
 
-    public List<User> suggestFriends(Long userId) {
+    /**
+     * One page of users whose name or email contains {@code searchTerm}, best match first,
+     * looked up in the in-memory {@link UserSearchIndex} and loaded by id.
+     */
+    public List<UserSummaryDTO> searchUsers(String searchTerm, int offset, int limit) {
+        long[] ids = userSearch.search(searchTerm, offset, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        Map<Long, UserSummaryDTO> byId = em.createQuery(
+                "SELECT new app.DTO.UserSummaryDTO(u.id, u.name) FROM User u WHERE u.id IN :ids", UserSummaryDTO.class)
+                .setParameter("ids", idList)
+                .getResultStream()
+                .collect(Collectors.toMap(UserSummaryDTO::getId, u -> u));
+        List<UserSummaryDTO> users = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            UserSummaryDTO user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
 
-        List<User> friends = getFriends(userId);
+    /** Suggestions returned when the client does not ask for a number. */
+    public static final int DEFAULT_SUGGESTIONS = 10;
+    public static final int MAX_SUGGESTIONS = 100;
 
-        // Create a list to store suggested friends
-        List<User> suggestedFriends = new ArrayList<>();
+    /**
+     * The {@code limit} best friends-of-friends for a user, excluding current friends
+     * and anyone with a pending request to or from the user.
+     */
+    public List<FriendSuggestionDTO> suggestFriends(Long userId, int limit, SuggestionRanking ranking) {
+        int k = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
 
-        // For each friend, get their friends and find mutual connections
-        for (User friend : friends) {
-            List<User> mutualFriends = getFriends(friend.getId());
+        List<Long> pending = em.createQuery("""
+        SELECT c.receiver.id FROM Connection c
+        WHERE c.sender.id = :uid AND c.status = 'PENDING'
+        """, Long.class)
+                .setParameter("uid", userId)
+                .getResultList();
+        pending.addAll(em.createQuery("""
+        SELECT c.sender.id FROM Connection c
+        WHERE c.receiver.id = :uid AND c.status = 'PENDING'
+        """, Long.class)
+                .setParameter("uid", userId)
+                .getResultList());
+        long[] excluded = pending.stream().mapToLong(Long::longValue).sorted().toArray();
 
-            for (User mutualFriend : mutualFriends) {
-                // Only suggest users that are not already friends and not the user themself
-                if (!friends.contains(mutualFriend) && !mutualFriend.getId().equals(userId)) {
-                    suggestedFriends.add(mutualFriend);
-                }
-            }
+        List<FriendSuggestionDTO> suggestions = socialGraph.suggest(userId, excluded, k, ranking);
+        if (suggestions.isEmpty()) {
+            return suggestions;
         }
-
-        // Return suggested friends based on mutual connections
-        return suggestedFriends;
+        Map<Long, String> names = new HashMap<>();
+        em.createQuery("SELECT u.id, u.name FROM User u WHERE u.id IN :ids", Object[].class)
+                .setParameter("ids", suggestions.stream().map(FriendSuggestionDTO::getUserId).collect(Collectors.toList()))
+                .setHint("org.hibernate.cacheable", true)
+                .setHint("org.hibernate.cacheRegion", FRIEND_LOOKUPS)
+                .getResultList()
+                .forEach(row -> names.put((Long) row[0], (String) row[1]));
+        suggestions.forEach(s -> s.setName(names.get(s.getUserId())));
+        return suggestions;
     }
 
 }
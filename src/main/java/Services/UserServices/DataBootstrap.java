@@ -0,0 +1,45 @@
+package Services.UserServices;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import notificationModule.ActivityLogService;
+
+/**
+ * One-off data backfills for derived tables and columns, run at deployment.
+ * Each step is a no-op once it has been applied.
+ */
+@Singleton
+@Startup
+public class DataBootstrap {
+
+    @EJB
+    private ConnectionService connectionService;
+    @EJB
+    private TimelineService timelineService;
+    @EJB
+    private PostService postService;
+    @EJB
+    private FeedRankingService feedRankingService;
+    @EJB
+    private ActivityLogService activityLogService;
+
+    @PostConstruct
+    void init() {
+        // drop duplicates written before requests were de-duplicated, then add the unique constraint
+        connectionService.enforceUniqueConnections();
+        // derive the friendship table from connections accepted before it was maintained
+        connectionService.rebuildFriendshipsIfEmpty();
+        // fill timelines for posts written before fan-out existed
+        timelineService.rebuildIfEmpty();
+        // count likes/comments for posts written before the counters existed
+        postService.recountLegacyCounters();
+        // score them for the ranked feed, now that their counters are right
+        feedRankingService.scoreLegacyPosts();
+        // activity log ids moved from IDENTITY to a sequence; start it past the existing rows
+        activityLogService.alignIdSequence();
+        // unread counts for activity logged before read state was kept
+        activityLogService.rebuildReadStatesIfEmpty();
+    }
+}
@@ -0,0 +1,113 @@
+package Services.UserServices;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides which authors are delivered by push (fan-out on write) and which by pull
+ * (merged into readers' feeds at read time).
+ * <p>
+ * Authors with at least {@code threshold} accepted friends are "high fan-out": pushing
+ * their posts would write one timeline row per friend, so they are pulled instead.
+ * The set is recomputed every few minutes and whenever the threshold changes; reads
+ * use an immutable snapshot and never block.
+ * <p>
+ * Lowering the threshold is seamless (already-pushed posts are de-duplicated against
+ * pulled ones). An author who moves back to push, because the threshold was raised or
+ * they lost friends, has the posts they wrote while pulled pushed to their friends
+ * (see {@link TimelineService#pushPulledPosts}), since readers stop pulling them. The
+ * split is not stored, so this does not cover an author who drops out while the server is down.
+ */
+@Singleton
+@Startup
+@DependsOn("DataBootstrap")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class FanoutPolicy {
+
+    private static final int DEFAULT_THRESHOLD = Integer.getInteger("feed.fanout.threshold", 5000);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private FeedCache feedCache;
+
+    private volatile int threshold = DEFAULT_THRESHOLD;
+    private volatile Set<Long> highFanoutAuthors = Set.of();
+    /**
+     * Authors moved back to push by the previous refresh. They are pushed again, because a
+     * post created just before the switch may not have been committed the first time.
+     */
+    private Set<Long> pushedLastRefresh = Set.of();
+
+    @EJB
+    private TimelineService timelineService;
+
+    @PostConstruct
+    void init() {
+        refresh();
+    }
+
+    // synchronized: a tick racing setThreshold could otherwise publish a set for the old threshold
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public synchronized void refresh() {
+        Set<Long> authors = new HashSet<>(em.createQuery("""
+                SELECT u.id FROM User u JOIN u.friends f
+                GROUP BY u.id
+                HAVING COUNT(*) >= :threshold
+                """, Long.class)
+                .setParameter("threshold", (long) threshold)
+                .getResultList());
+        Set<Long> movedToPush = new HashSet<>(highFanoutAuthors);
+        movedToPush.removeAll(authors);
+        boolean changed = !authors.equals(highFanoutAuthors);
+        if (changed) {
+            // published first, so posts written from now on are pushed and none fall in between
+            highFanoutAuthors = Set.copyOf(authors);
+        }
+        Set<Long> toPush = new HashSet<>(movedToPush);
+        toPush.addAll(pushedLastRefresh);
+        toPush.removeAll(authors);
+        for (Long authorId : toPush) {
+            timelineService.pushPulledPosts(authorId);
+        }
+        pushedLastRefresh = Set.copyOf(movedToPush);
+        if (changed || !toPush.isEmpty()) {
+            // cached pages were merged under the old split
+            feedCache.clear();
+        }
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public synchronized void setThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive");
+        }
+        this.threshold = threshold;
+        refresh();
+    }
+
+    public boolean isHighFanout(Long authorId) {
+        return highFanoutAuthors.contains(authorId);
+    }
+
+    /** Current snapshot; immutable. */
+    public Set<Long> getHighFanoutAuthors() {
+        return highFanoutAuthors;
+    }
+}
@@ -0,0 +1,253 @@
+package Services.UserServices;
+
+import app.DTO.FeedPageDTO;
+import app.DTO.PostDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, size-aware cache of rendered feed pages, keyed by (user, cursor, page size).
+ * <p>
+ * Eviction is Caffeine's W-TinyLFU over an estimated byte weight per page.
+ * Invalidation is driven by {@link FeedChangeEvent}s observed after commit, and
+ * reverse indexes (user -> keys, post -> keys, pulled author -> keys) make it drop
+ * exactly the affected pages.
+ * <p>
+ * A read that raced with an invalidation must not re-insert what it read, so every
+ * invalidation stamps a striped sequence number, and {@link #put} refuses pages whose
+ * user, pulled authors or posts were invalidated after the read began ({@link #startRead}).
+ */
+@ApplicationScoped
+public class FeedCache {
+
+    private static final long MAX_WEIGHT_BYTES = Long.getLong("feed.cache.maxBytes", 64L * 1024 * 1024);
+    private static final int STRIPES = 4096;
+
+    private final Cache<Key, FeedPageDTO> cache;
+    private final Map<Long, Set<Key>> keysByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Key>> keysByPost = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Key>> keysByPulledAuthor = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray userStamps = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray postStamps = new AtomicLongArray(STRIPES);
+
+    public FeedCache() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(MAX_WEIGHT_BYTES)
+                .weigher((Key key, FeedPageDTO page) -> estimateBytes(page))
+                // a replaced page's key is still live and indexed; the replacement's own
+                // index entries were added by put, stale ones are pruned by invalidateAll
+                .removalListener((Key key, FeedPageDTO page, RemovalCause cause) -> {
+                    if (cause != RemovalCause.REPLACED) {
+                        unindex(key, page);
+                    }
+                })
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /** Take before reading from the database; pass to {@link #put}. */
+    public long startRead() {
+        return sequence.get();
+    }
+
+    public FeedPageDTO get(Long userId, FeedCursor cursor, int limit) {
+        return cache.getIfPresent(new Key(userId, cursor, limit, Set.of()));
+    }
+
+    /**
+     * @param pulledAuthors high fan-out authors whose posts were merged into the page at read time
+     */
+    public void put(Long userId, FeedCursor cursor, int limit, FeedPageDTO page,
+                    Set<Long> pulledAuthors, long readStamp) {
+        if (invalidatedSince(readStamp, userId, pulledAuthors, page)) {
+            return;
+        }
+        Key key = new Key(userId, cursor, limit, pulledAuthors);
+        addKey(keysByUser, userId, key);
+        for (Long authorId : pulledAuthors) {
+            addKey(keysByPulledAuthor, authorId, key);
+        }
+        for (PostDTO post : page.getPosts()) {
+            addKey(keysByPost, post.getId(), key);
+        }
+        cache.put(key, page);
+        // an invalidation between the check above and the put may have missed the new entry
+        if (invalidatedSince(readStamp, userId, pulledAuthors, page)) {
+            cache.invalidate(key);
+        }
+    }
+
+    private boolean invalidatedSince(long readStamp, Long userId, Set<Long> pulledAuthors, FeedPageDTO page) {
+        if (userStamps.get(stripe(userId)) > readStamp) {
+            return true;
+        }
+        for (Long authorId : pulledAuthors) {
+            if (userStamps.get(stripe(authorId)) > readStamp) {
+                return true;
+            }
+        }
+        for (PostDTO post : page.getPosts()) {
+            if (postStamps.get(stripe(post.getId())) > readStamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void onFeedChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) FeedChangeEvent event) {
+        long stamp = sequence.incrementAndGet();
+
+        for (Long userId : event.getAllPageUsers()) {
+            userStamps.accumulateAndGet(stripe(userId), stamp, Math::max);
+            invalidateAll(keysByUser, userId, false);
+        }
+        for (Long userId : event.getFirstPageUsers()) {
+            userStamps.accumulateAndGet(stripe(userId), stamp, Math::max);
+            invalidateAll(keysByUser, userId, true);
+        }
+        for (Long authorId : event.getPulledAuthors()) {
+            userStamps.accumulateAndGet(stripe(authorId), stamp, Math::max);
+            invalidateAll(keysByPulledAuthor, authorId, true);
+        }
+        for (Long postId : event.getPostIds()) {
+            postStamps.accumulateAndGet(stripe(postId), stamp, Math::max);
+            invalidateAll(keysByPost, postId, false);
+        }
+    }
+
+    /**
+     * Drop every cached page, e.g. when authors switch between push and pull delivery.
+     */
+    public void clear() {
+        long stamp = sequence.incrementAndGet();
+        for (int i = 0; i < STRIPES; i++) {
+            userStamps.accumulateAndGet(i, stamp, Math::max);
+        }
+        cache.invalidateAll();
+    }
+
+    /** Hit-rate, eviction and sizing figures for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("hitCount", s.hitCount());
+        out.put("missCount", s.missCount());
+        out.put("hitRate", s.hitRate());
+        out.put("evictionCount", s.evictionCount());
+        out.put("evictionWeightBytes", s.evictionWeight());
+        out.put("entries", cache.estimatedSize());
+        out.put("weightBytes", cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+        out.put("maxWeightBytes", MAX_WEIGHT_BYTES);
+        return out;
+    }
+
+    private void invalidateAll(Map<Long, Set<Key>> index, Long id, boolean firstPageOnly) {
+        Set<Key> keys = index.get(id);
+        if (keys == null) {
+            return;
+        }
+        for (Key key : keys) {
+            // pages behind a cursor only hold posts older than it, so a new post can't change them
+            if (!firstPageOnly || key.cursor == null) {
+                cache.invalidate(key);
+                // unindex covers the page that was live; this drops entries left by a replaced one
+                removeKey(index, id, key);
+            }
+        }
+    }
+
+    private void unindex(Key key, FeedPageDTO page) {
+        removeKey(keysByUser, key.userId, key);
+        for (Long authorId : key.pulledAuthors) {
+            removeKey(keysByPulledAuthor, authorId, key);
+        }
+        if (page != null) {
+            for (PostDTO post : page.getPosts()) {
+                removeKey(keysByPost, post.getId(), key);
+            }
+        }
+    }
+
+    // inside compute, so a concurrent removeKey can't drop the set this key was just added to
+    private static void addKey(Map<Long, Set<Key>> index, Long id, Key key) {
+        index.compute(id, (k, keys) -> {
+            Set<Key> out = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            out.add(key);
+            return out;
+        });
+    }
+
+    private static void removeKey(Map<Long, Set<Key>> index, Long id, Key key) {
+        index.computeIfPresent(id, (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static int stripe(Long id) {
+        return (Long.hashCode(id) * 0x9E3779B9 >>> 1) % STRIPES;
+    }
+
+    /** Rough retained size of a page: fixed per-post overhead plus the strings it carries. */
+    private static int estimateBytes(FeedPageDTO page) {
+        long bytes = 64;
+        for (PostDTO post : page.getPosts()) {
+            bytes += 160 + length(post.getContent()) + length(post.getImageUrl())
+                    + length(post.getLink()) + length(post.getAuthorUsername());
+            if (post.getCommentContents() != null) {
+                for (String comment : post.getCommentContents()) {
+                    bytes += 48 + length(comment);
+                }
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    private static final class Key {
+        final Long userId;
+        final FeedCursor cursor;
+        final int limit;
+        /** carried for unindexing only; not part of equality */
+        final Set<Long> pulledAuthors;
+
+        Key(Long userId, FeedCursor cursor, int limit, Set<Long> pulledAuthors) {
+            this.userId = userId;
+            this.cursor = cursor;
+            this.limit = limit;
+            this.pulledAuthors = pulledAuthors;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return limit == key.limit && userId.equals(key.userId) && Objects.equals(cursor, key.cursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, cursor, limit);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package Services.UserServices;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CDI event describing which cached feed pages a committed change affects.
+ * Fired by the services, observed after commit by {@link FeedCache}.
+ */
+public class FeedChangeEvent {
+
+    /** users whose newest page changed (a new post entered their timeline) */
+    private final Set<Long> firstPageUsers = new HashSet<>();
+    /** users whose whole timeline may have changed (e.g. backfilled after a new friendship) */
+    private final Set<Long> allPageUsers = new HashSet<>();
+    /** posts whose rendering changed; every cached page containing them is stale */
+    private final Set<Long> postIds = new HashSet<>();
+    /** high fan-out authors with a new post; first pages that pulled from them are stale */
+    private final Set<Long> pulledAuthors = new HashSet<>();
+
+    private FeedChangeEvent() {}
+
+    public static FeedChangeEvent postCreated(Collection<Long> audience) {
+        FeedChangeEvent e = new FeedChangeEvent();
+        e.firstPageUsers.addAll(audience);
+        return e;
+    }
+
+    /** A post by a high fan-out author, which readers pull instead of receiving it by push. */
+    public static FeedChangeEvent pulledPostCreated(Long authorId) {
+        FeedChangeEvent e = new FeedChangeEvent();
+        e.firstPageUsers.add(authorId);
+        e.pulledAuthors.add(authorId);
+        return e;
+    }
+
+    public static FeedChangeEvent postsChanged(Collection<Long> postIds) {
+        FeedChangeEvent e = new FeedChangeEvent();
+        e.postIds.addAll(postIds);
+        return e;
+    }
+
+    public static FeedChangeEvent postChanged(Long postId) {
+        return postsChanged(List.of(postId));
+    }
+
+    public static FeedChangeEvent friendshipChanged(Long userId, Long otherUserId) {
+        FeedChangeEvent e = new FeedChangeEvent();
+        e.allPageUsers.add(userId);
+        e.allPageUsers.add(otherUserId);
+        return e;
+    }
+
+    public Set<Long> getFirstPageUsers() {
+        return firstPageUsers;
+    }
+
+    public Set<Long> getAllPageUsers() {
+        return allPageUsers;
+    }
+
+    public Set<Long> getPostIds() {
+        return postIds;
+    }
+
+    public Set<Long> getPulledAuthors() {
+        return pulledAuthors;
+    }
+}
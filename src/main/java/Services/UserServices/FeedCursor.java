@@ -0,0 +1,65 @@
+package Services.UserServices;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Keyset position in a feed: the (createdAt, postId) of the last post a client has seen.
+ * Travels over the wire as an opaque base64url token.
+ */
+public final class FeedCursor {
+
+    private final LocalDateTime createdAt;
+    private final Long postId;
+
+    public FeedCursor(LocalDateTime createdAt, Long postId) {
+        this.createdAt = Objects.requireNonNull(createdAt);
+        this.postId = Objects.requireNonNull(postId);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public String encode() {
+        String raw = createdAt + "_" + postId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null for a null/blank token (first page)
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static FeedCursor parse(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('_');
+            return new FeedCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid feed cursor");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FeedCursor)) return false;
+        FeedCursor that = (FeedCursor) o;
+        return createdAt.equals(that.createdAt) && postId.equals(that.postId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdAt, postId);
+    }
+}
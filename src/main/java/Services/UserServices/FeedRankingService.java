@@ -0,0 +1,158 @@
+package Services.UserServices;
+
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Scores for the ranked feed, maintained as engagement happens rather than per request.
+ * <p>
+ * Every post carries a precomputed {@code rankScore}:
+ * {@code log10(1 + likes + 2 * comments) + epochSeconds(createdAt) / DECAY_SECONDS}.
+ * Recency is folded in as an ever-growing offset, so a score never has to be recomputed
+ * as the post ages: ten times the engagement is worth {@code DECAY_SECONDS} of freshness.
+ * The score is rewritten by one bulk UPDATE whenever a like or comment lands.
+ * <p>
+ * Per-reader author affinity (a weighted count of the reader's likes and comments on the
+ * author's posts) lives in the {@code affinity} table and is added at read time, for the
+ * handful of authors in the candidate window only.
+ */
+@Stateless
+public class FeedRankingService {
+
+    /** Seconds of recency worth one order of magnitude of engagement (12.5 hours). */
+    public static final double DECAY_SECONDS = 45000.0;
+    /** How far a log10 unit of affinity lifts a post. */
+    public static final double AFFINITY_WEIGHT = 1.0;
+    public static final int LIKE_AFFINITY = 1;
+    public static final int COMMENT_AFFINITY = 2;
+
+    private static final String SCORE_EXPRESSION =
+            "log10(1 + COALESCE(p.likeCount, 0) + 2 * COALESCE(p.commentCount, 0))"
+                    + " + extract(epoch from p.createdAt) / " + DECAY_SECONDS;
+
+    private static final String INSERT_AFFINITY = """
+            INSERT INTO affinity (reader_id, author_id, weight)
+            SELECT ?, ?, 0
+            WHERE NOT EXISTS (SELECT 1 FROM affinity WHERE reader_id = ? AND author_id = ?)
+            """;
+    private static final String ADD_AFFINITY =
+            "UPDATE affinity SET weight = weight + ? WHERE reader_id = ? AND author_id = ?";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** Score of a post that has no engagement yet. */
+    public static double initialScore(LocalDateTime createdAt) {
+        return createdAt.toEpochSecond(ZoneOffset.UTC) / DECAY_SECONDS;
+    }
+
+    /** Recompute a post's score from its current counters; call after changing them. */
+    public void rescore(Long postId) {
+        em.createQuery("UPDATE Post p SET p.rankScore = " + SCORE_EXPRESSION + " WHERE p.id = :postId")
+                .setParameter("postId", postId)
+                .executeUpdate();
+    }
+
+    /**
+     * Credit {@code readerId} with engaging with {@code authorId}'s posts.
+     * Engaging with your own posts says nothing about taste and is ignored.
+     */
+    public void recordEngagement(Long readerId, Long authorId, int weight) {
+        recordEngagements(List.of(readerId), authorId, weight);
+    }
+
+    /**
+     * {@link #recordEngagement} for many readers of one author, as two JDBC batches.
+     * Plain JDBC rather than a native query: Hibernate can't tell which tables an unspaced
+     * native write touches, so it would evict every second-level cache region with it.
+     */
+    public void recordEngagements(Collection<Long> readerIds, Long authorId, int weight) {
+        em.flush();
+        em.unwrap(Session.class).doWork(jdbc -> {
+            try (PreparedStatement insert = jdbc.prepareStatement(INSERT_AFFINITY);
+                 PreparedStatement update = jdbc.prepareStatement(ADD_AFFINITY)) {
+                for (Long readerId : readerIds) {
+                    if (readerId.equals(authorId)) {
+                        continue;
+                    }
+                    insert.setLong(1, readerId);
+                    insert.setLong(2, authorId);
+                    insert.setLong(3, readerId);
+                    insert.setLong(4, authorId);
+                    insert.addBatch();
+                    update.setInt(1, weight);
+                    update.setLong(2, readerId);
+                    update.setLong(3, authorId);
+                    update.addBatch();
+                }
+                insert.executeBatch();
+                update.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Order a reader's candidate posts best first: stored score plus the reader's
+     * affinity with each author. Two bounded queries, whatever the window holds.
+     */
+    public List<Long> rank(Long readerId, List<Long> candidateIds) {
+        if (candidateIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object[]> rows = em.createQuery("""
+                SELECT p.id, p.author.id, p.rankScore, p.createdAt FROM Post p
+                WHERE p.id IN :ids
+                """, Object[].class)
+                .setParameter("ids", candidateIds)
+                .getResultList();
+
+        Set<Long> authors = new HashSet<>();
+        for (Object[] row : rows) {
+            authors.add((Long) row[1]);
+        }
+        Map<Long, Integer> affinity = new HashMap<>();
+        em.createQuery("""
+                SELECT a.authorId, a.weight FROM Affinity a
+                WHERE a.readerId = :readerId AND a.authorId IN :authors
+                """, Object[].class)
+                .setParameter("readerId", readerId)
+                .setParameter("authors", authors)
+                .getResultList()
+                .forEach(row -> affinity.put((Long) row[0], (Integer) row[1]));
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (Object[] row : rows) {
+            Double stored = (Double) row[2];
+            double base = stored != null ? stored : initialScore((LocalDateTime) row[3]);
+            int weight = affinity.getOrDefault((Long) row[1], 0);
+            scores.put((Long) row[0], base + AFFINITY_WEIGHT * Math.log10(1 + weight));
+        }
+        return scores.keySet().stream()
+                .sorted(Comparator.comparing((Long id) -> scores.get(id)).reversed()
+                        .thenComparing(Comparator.reverseOrder()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Score posts written before ranking existed. Touches only rows without a score.
+     */
+    public void scoreLegacyPosts() {
+        em.createQuery("UPDATE Post p SET p.rankScore = " + SCORE_EXPRESSION + " WHERE p.rankScore IS NULL")
+                .executeUpdate();
+    }
+}
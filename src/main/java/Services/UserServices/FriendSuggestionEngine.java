@@ -0,0 +1,132 @@
+package Services.UserServices;
+
+import app.DTO.FriendSuggestionDTO;
+import util.LongScoreTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Friend-of-friend suggestions over adjacency lists from {@link SocialGraphIndex}.
+ * <p>
+ * Every friend-of-friend is tallied in a primitive {@link LongScoreTable}: one hit per
+ * mutual friend, plus that friend's Adamic-Adar weight. Large networks are split across
+ * the fork-join pool by the number of two-hop entries, each task with its own table,
+ * merged on join. The top K are then picked with a K-sized heap.
+ */
+final class FriendSuggestionEngine {
+
+    /** Two-hop entries one task tallies before splitting further. */
+    static final int SEQUENTIAL_THRESHOLD = 50_000;
+
+    private FriendSuggestionEngine() {}
+
+    /**
+     * @param friends           the user's friends, ascending
+     * @param friendsOfFriends  {@code friendsOfFriends[i]} is the friend list of {@code friends[i]}
+     * @param excluded          further ids not to suggest (e.g. pending requests), ascending
+     */
+    static List<FriendSuggestionDTO> topK(long userId, long[] friends, long[][] friendsOfFriends,
+                                          long[] excluded, int k, SuggestionRanking ranking) {
+        long[] work = new long[friendsOfFriends.length + 1];
+        for (int i = 0; i < friendsOfFriends.length; i++) {
+            work[i + 1] = work[i] + friendsOfFriends[i].length;
+        }
+        TallyTask all = new TallyTask(friendsOfFriends, work, 0, friendsOfFriends.length);
+        LongScoreTable tally = work[friendsOfFriends.length] > SEQUENTIAL_THRESHOLD
+                ? ForkJoinPool.commonPool().invoke(all)
+                : all.compute();
+
+        // lower id wins remaining ties, so results are deterministic
+        Comparator<FriendSuggestionDTO> better = byRanking(ranking)
+                .thenComparing(FriendSuggestionDTO::getUserId, Comparator.reverseOrder());
+
+        PriorityQueue<FriendSuggestionDTO> best = new PriorityQueue<>(k + 1, better);
+        tally.forEach((candidate, mutual, score) -> {
+            if (candidate == userId
+                    || Arrays.binarySearch(friends, candidate) >= 0
+                    || Arrays.binarySearch(excluded, candidate) >= 0) {
+                return;
+            }
+            FriendSuggestionDTO suggestion = new FriendSuggestionDTO(candidate, mutual, score);
+            if (best.size() < k) {
+                best.add(suggestion);
+            } else if (better.compare(suggestion, best.peek()) > 0) {
+                best.poll();
+                best.add(suggestion);
+            }
+        });
+
+        List<FriendSuggestionDTO> result = new ArrayList<>(best);
+        result.sort(better.reversed());
+        return result;
+    }
+
+    private static Comparator<FriendSuggestionDTO> byRanking(SuggestionRanking ranking) {
+        if (ranking == SuggestionRanking.MUTUAL_FRIENDS) {
+            return Comparator.comparingInt(FriendSuggestionDTO::getMutualFriends)
+                    .thenComparingDouble(FriendSuggestionDTO::getScore);
+        }
+        return Comparator.comparingDouble(FriendSuggestionDTO::getScore)
+                .thenComparingInt(FriendSuggestionDTO::getMutualFriends);
+    }
+
+    private static final class TallyTask extends RecursiveTask<LongScoreTable> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[][] lists;
+        /** prefix sums of list lengths, for splitting by work rather than by friend count */
+        private final long[] work;
+        private final int from;
+        private final int to;
+
+        TallyTask(long[][] lists, long[] work, int from, int to) {
+            this.lists = lists;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongScoreTable compute() {
+            long size = work[to] - work[from];
+            if (size <= SEQUENTIAL_THRESHOLD || to - from < 2) {
+                LongScoreTable table = new LongScoreTable((int) Math.min(size, 1 << 20));
+                for (int i = from; i < to; i++) {
+                    long[] list = lists[i];
+                    // the friend's list includes the user, so a length of 1 means no candidates
+                    double weight = list.length > 1 ? 1.0 / Math.log(list.length) : 0.0;
+                    for (long candidate : list) {
+                        table.add(candidate, weight);
+                    }
+                }
+                return table;
+            }
+            int mid = split();
+            TallyTask left = new TallyTask(lists, work, from, mid);
+            TallyTask right = new TallyTask(lists, work, mid, to);
+            left.fork();
+            LongScoreTable merged = right.compute();
+            LongScoreTable other = left.join();
+            if (other.size() > merged.size()) {
+                other.mergeFrom(merged);
+                return other;
+            }
+            merged.mergeFrom(other);
+            return merged;
+        }
+
+        /** Index that halves the work, kept strictly inside (from, to). */
+        private int split() {
+            long half = work[from] + (work[to] - work[from]) / 2;
+            int pos = Arrays.binarySearch(work, from, to + 1, half);
+            int mid = pos >= 0 ? pos : -pos - 1;
+            return Math.max(from + 1, Math.min(to - 1, mid));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package Services.UserServices;
+
+/**
+ * CDI event fired when a friend request is accepted.
+ * Observed after commit by {@link SocialGraphIndex}.
+ */
+public class FriendshipAccepted {
+
+    private final long userId;
+    private final long otherUserId;
+
+    public FriendshipAccepted(long userId, long otherUserId) {
+        this.userId = userId;
+        this.otherUserId = otherUserId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getOtherUserId() {
+        return otherUserId;
+    }
+}
@@ -0,0 +1,36 @@
+package Services.UserServices;
+
+/**
+ * CDI event fired when a group is created, renamed, gains or loses a member, or is deleted
+ * ({@code name} null).
+ * Observed after commit by {@link TypeaheadIndex}.
+ */
+public class GroupChanged {
+
+    private final long groupId;
+    private final String name;
+    private final int memberCount;
+
+    public GroupChanged(long groupId, String name, int memberCount) {
+        this.groupId = groupId;
+        this.name = name;
+        this.memberCount = memberCount;
+    }
+
+    public static GroupChanged deleted(long groupId) {
+        return new GroupChanged(groupId, null, 0);
+    }
+
+    public long getGroupId() {
+        return groupId;
+    }
+
+    /** null if the group was deleted */
+    public String getName() {
+        return name;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+}
@@ -2,14 +2,19 @@ package Services.UserServices;
 
 import Domain.Group;
 import Domain.User;
+import app.DTO.GroupDetailsDTO;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.ws.rs.NotFoundException;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import Domain.Post;
@@ -17,6 +22,7 @@ import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.ForbiddenException;
 import notificationModule.NotificationEvent;
 import notificationModule.NotificationProducer;
+import util.ResultStreams;
 
 
 @Stateless
@@ -26,12 +32,19 @@ public class GroupService {
     private EntityManager em;
     @Inject
     private NotificationProducer notificationProducer;
+    @EJB
+    private TimelineService timelineService;
+    @Inject
+    private Event<FeedChangeEvent> feedChanges;
+    @Inject
+    private Event<GroupChanged> groupChanges;
     /**
      * Create a new group and persist it.
      */
     public Group createGroup(String name, String description, boolean closed, User creator) {
         Group group = new Group(name, description, closed, creator);
         em.persist(group);
+        groupChanges.fire(new GroupChanged(group.getId(), name, group.getMembers().size()));
         return group;
     }
 
@@ -55,6 +68,7 @@ public class GroupService {
             // only if they actually asked
             if (group.getJoinRequests().remove(user)) {
                 group.addMember(user);
+                membersChanged(group);
             }
         } else {
             // reject: just drop the request
@@ -79,12 +93,14 @@ public class GroupService {
             if (!group.getMembers().contains(user)) {
                 group.addMember(user);
                 em.merge(group);
+                membersChanged(group);
             }
             NotificationEvent event = new NotificationEvent();
             event.setEventType("GROUP_JOIN");
             event.setFromUserId(user.getId());
             event.setToUserId(group.getCreator().getId());
             event.setMessage(user.getName() + " joined your group \"" + group.getName() + "\".");
+            event.setActorName(user.getName());
 
 
             notificationProducer.sendNotification(event);
@@ -103,6 +119,7 @@ public class GroupService {
             event.setFromUserId(user.getId());
             event.setToUserId(group.getCreator().getId());
             event.setMessage(user.getName() + " joined your group \"" + group.getName() + "\".");
+            event.setActorName(user.getName());
 
 
             notificationProducer.sendNotification(event);
@@ -124,6 +141,7 @@ public class GroupService {
         group.removeMember(u);
         group.removeAdmin(u);
         em.merge(group);
+        membersChanged(group);
 
 
                 NotificationEvent event = new NotificationEvent();
@@ -131,6 +149,7 @@ public class GroupService {
                 event.setFromUserId(user.getId());
                 event.setToUserId(group.getCreator().getId());
                 event.setMessage(user.getName() + " left your group \"" + group.getName() + "\".");
+                event.setActorName(user.getName());
 
 
                 notificationProducer.sendNotification(event);
@@ -148,6 +167,41 @@ public class GroupService {
                 .getResultList();
     }
 
+    /**
+     * Every group as a {@link GroupDetailsDTO}, handed to {@code sink} one group at a time.
+     * Reads flat (group, member) rows in group order and emits each group as soon as
+     * its last member has been read, so only one group is ever held in memory.
+     */
+    public void streamGroupDetails(Consumer<? super GroupDetailsDTO> sink) {
+        GroupDetailsDTO[] current = {null};
+        ResultStreams.forEach(em, em.createQuery("""
+                SELECT g.id, g.name, g.description, g.closed, g.creator.id, m.id
+                FROM Group g LEFT JOIN g.members m
+                ORDER BY g.id
+                """, Object[].class), row -> {
+            Long groupId = (Long) row[0];
+            if (current[0] == null || !current[0].getId().equals(groupId)) {
+                if (current[0] != null) {
+                    sink.accept(current[0]);
+                }
+                GroupDetailsDTO dto = new GroupDetailsDTO();
+                dto.setId(groupId);
+                dto.setName((String) row[1]);
+                dto.setDescription((String) row[2]);
+                dto.setClosed((Boolean) row[3]);
+                dto.setCreatorId((Long) row[4]);
+                dto.setMemberIds(new HashSet<>());
+                current[0] = dto;
+            }
+            if (row[5] != null) {
+                current[0].getMemberIds().add((Long) row[5]);
+            }
+        });
+        if (current[0] != null) {
+            sink.accept(current[0]);
+        }
+    }
+
     /**
      * Get members of a group and initialize the collection.
      */
@@ -184,6 +238,11 @@ public class GroupService {
                 .collect(Collectors.toSet());
     }
 
+    /** The member count is the group's typeahead popularity. */
+    private void membersChanged(Group group) {
+        groupChanges.fire(new GroupChanged(group.getId(), group.getName(), group.getMembers().size()));
+    }
+
     public boolean isAdmin(Group g, User u) { return g.getCreator() != null && g.getCreator().getId().equals(u.getId());}
 
 
@@ -194,6 +253,7 @@ public class GroupService {
         group.setClosed(closed);
         // entity is already managed; merge not strictly required, but ensures sync
         em.merge(group);
+        groupChanges.fire(new GroupChanged(groupId, name, group.getMembers().size()));
         return group;
     }
 
@@ -210,7 +270,13 @@ public class GroupService {
             group = em.merge(group);
         }
 
+        List<Long> postIds = em.createQuery("SELECT p.id FROM Post p WHERE p.group.id = :gid", Long.class)
+                .setParameter("gid", groupId)
+                .getResultList();
+        timelineService.removeGroupPosts(groupId);
         em.remove(group);
+        feedChanges.fire(FeedChangeEvent.postsChanged(postIds));
+        groupChanges.fire(GroupChanged.deleted(groupId));
     }
 
 
@@ -271,7 +337,9 @@ public class GroupService {
         if (p == null || !p.getGroup().getId().equals(groupId)) {
             throw new BadRequestException("Post not found in this group");
         }
+        timelineService.removePost(postId);
         em.remove(em.contains(p) ? p : em.merge(p));
+        feedChanges.fire(FeedChangeEvent.postChanged(postId));
     }
 
 
@@ -0,0 +1,228 @@
+package Services.UserServices;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Likes accepted but not yet written, so a like costs a set insert instead of a
+ * transaction on the post's row. Every second the buffer is written to {@code post_likes}
+ * in JDBC batches, with one counter update per post (see {@link PostService#writeLikes}).
+ * <p>
+ * Pending likes are split over {@link #SHARDS} locks by (post, user), so a viral post's
+ * likes spread over all of them; a given like always lands in the same shard, which
+ * dedupes repeats. A like stays visible through {@link #isPending} until its chunk has
+ * committed, and no longer, so the liker sees it exactly once on every read in between.
+ * A crash loses the last second.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class LikeBuffer {
+
+    public static final int SHARDS = 64;
+    /** Likes written per transaction at most. */
+    public static final int WRITE_BATCH = 5000;
+
+    private static final Logger LOG = Logger.getLogger(LikeBuffer.class.getName());
+
+    @EJB
+    private PostService postService;
+
+    private final Shard[] shards = new Shard[SHARDS];
+    /** a flush that outlasts the interval keeps going; the next tick skips */
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    public LikeBuffer() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * @return false if the like is already waiting to be written
+     */
+    public boolean add(long postId, long userId) {
+        boolean added = shard(postId, userId).add(postId, userId);
+        if (added) {
+            accepted.increment();
+        }
+        return added;
+    }
+
+    /** Whether the like is accepted but not yet committed to {@code post_likes}. */
+    public boolean isPending(long postId, long userId) {
+        return shard(postId, userId).contains(postId, userId);
+    }
+
+    // each chunk is written in its own transaction, see PostService#writeLikes
+    @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Map<Long, Set<Long>> likes = new HashMap<>();
+            for (Shard shard : shards) {
+                shard.drainTo(likes);
+            }
+            for (Map<Long, Set<Long>> chunk : chunks(likes)) {
+                postService.writeLikes(chunk);
+                written.add(size(chunk));
+                // the chunk is in likeCount now; reporting it as pending too would count it twice
+                for (Map.Entry<Long, Set<Long>> entry : chunk.entrySet()) {
+                    for (Long userId : entry.getValue()) {
+                        shard(entry.getKey(), userId).committed(entry.getKey(), userId);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // only chunks that did not commit are still in writing
+            failedFlushes.increment();
+            LOG.log(Level.WARNING, "like_buffer.flush_failed", e);
+            for (Shard shard : shards) {
+                shard.requeue();
+            }
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /** Counters for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        long pending = 0;
+        for (Shard shard : shards) {
+            pending += shard.size();
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("accepted", accepted.sum());
+        out.put("written", written.sum());
+        out.put("pending", pending);
+        out.put("failedFlushes", failedFlushes.sum());
+        return out;
+    }
+
+    private Shard shard(long postId, long userId) {
+        long h = postId * 0x9E3779B97F4A7C15L + userId;
+        h ^= h >>> 32;
+        return shards[(int) (h & (SHARDS - 1))];
+    }
+
+    /** Split into maps of at most {@link #WRITE_BATCH} likes, keeping a post's likes together where they fit. */
+    private static List<Map<Long, Set<Long>>> chunks(Map<Long, Set<Long>> likes) {
+        List<Map<Long, Set<Long>>> out = new ArrayList<>();
+        Map<Long, Set<Long>> chunk = new HashMap<>();
+        int size = 0;
+        for (Map.Entry<Long, Set<Long>> entry : likes.entrySet()) {
+            for (Long userId : entry.getValue()) {
+                if (size == WRITE_BATCH) {
+                    out.add(chunk);
+                    chunk = new HashMap<>();
+                    size = 0;
+                }
+                chunk.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>()).add(userId);
+                size++;
+            }
+        }
+        if (size > 0) {
+            out.add(chunk);
+        }
+        return out;
+    }
+
+    private static long size(Map<Long, Set<Long>> likes) {
+        long size = 0;
+        for (Set<Long> users : likes.values()) {
+            size += users.size();
+        }
+        return size;
+    }
+
+    /**
+     * Likes by post, in two generations: {@code pending} takes new likes, {@code writing}
+     * holds the ones handed to the current flush until their chunk commits or the flush fails.
+     */
+    private static final class Shard {
+        private Map<Long, Set<Long>> pending = new HashMap<>();
+        private Map<Long, Set<Long>> writing = new HashMap<>();
+        private int size;
+
+        synchronized boolean add(long postId, long userId) {
+            Set<Long> inFlight = writing.get(postId);
+            if (inFlight != null && inFlight.contains(userId)) {
+                return false;
+            }
+            boolean added = pending.computeIfAbsent(postId, k -> new LinkedHashSet<>()).add(userId);
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+
+        synchronized boolean contains(long postId, long userId) {
+            Set<Long> users = pending.get(postId);
+            if (users != null && users.contains(userId)) {
+                return true;
+            }
+            users = writing.get(postId);
+            return users != null && users.contains(userId);
+        }
+
+        synchronized void drainTo(Map<Long, Set<Long>> out) {
+            writing = pending;
+            pending = new HashMap<>();
+            size = 0;
+            for (Map.Entry<Long, Set<Long>> entry : writing.entrySet()) {
+                out.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>()).addAll(entry.getValue());
+            }
+        }
+
+        synchronized void committed(long postId, long userId) {
+            Set<Long> users = writing.get(postId);
+            if (users != null && users.remove(userId) && users.isEmpty()) {
+                writing.remove(postId);
+            }
+        }
+
+        synchronized void requeue() {
+            for (Map.Entry<Long, Set<Long>> entry : writing.entrySet()) {
+                Set<Long> users = pending.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>());
+                for (Long userId : entry.getValue()) {
+                    if (users.add(userId)) {
+                        size++;
+                    }
+                }
+            }
+            writing = new HashMap<>();
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package Services.UserServices;
 
 import Domain.*;
+import app.DTO.FeedPageDTO;
 import app.DTO.PostDTO;
 import jakarta.annotation.Resource;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.jms.JMSContext;
 import jakarta.jms.Queue;
@@ -15,9 +17,17 @@ import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.ForbiddenException;
 import notificationModule.NotificationEvent;
 import notificationModule.NotificationProducer;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Stateless
@@ -30,6 +40,14 @@ public class PostService {
     private NotificationProducer notificationProducer;
     @EJB
     private ConnectionService connectionService;
+    @EJB
+    private TimelineService timelineService;
+    @EJB
+    private FeedRankingService feedRankingService;
+    @Inject
+    private FeedCache feedCache;
+    @Inject
+    private Event<FeedChangeEvent> feedChanges;
 
     @Resource(lookup = "java:/jms/queue/NotificationQueue")
     private Queue notificationQueue;
@@ -37,6 +55,17 @@ public class PostService {
     @Inject
     private JMSContext jmsContext;
 
+    @EJB
+    private LikeBuffer likeBuffer;
+
+    private static final String INSERT_LIKE = """
+            INSERT INTO post_likes (post_id, user_id)
+            SELECT ?, ?
+            WHERE EXISTS (SELECT 1 FROM Post WHERE id = ?)
+            AND EXISTS (SELECT 1 FROM user_table WHERE id = ?)
+            AND NOT EXISTS (SELECT 1 FROM post_likes WHERE post_id = ? AND user_id = ?)
+            """;
+
 
     @Transactional
     public void createPost(Long authorId, String content, String imageUrl, String link) {
@@ -46,7 +75,9 @@ public class PostService {
         post.setImageUrl(imageUrl);
         post.setLink(link);
         post.setCreatedAt(LocalDateTime.now());
+        post.setRankScore(FeedRankingService.initialScore(post.getCreatedAt()));
         em.persist(post);
+        deliver(post);
     }
 
     @Inject
@@ -60,6 +91,7 @@ public class PostService {
         post.setAuthor(author);
         post.setContent(dto.getContent());
         post.setCreatedAt(LocalDateTime.now());
+        post.setRankScore(FeedRankingService.initialScore(post.getCreatedAt()));
 
         if (dto.getImageUrl() != null && !dto.getImageUrl().isEmpty()) {
             post.setImageUrl(dto.getImageUrl());
@@ -67,43 +99,162 @@ public class PostService {
 
         group.addPost(post);
         em.persist(post);
+        deliver(post);
         return post;
     }
 
+    /** Page size used when the client does not ask for one. */
+    public static final int DEFAULT_FEED_PAGE_SIZE = 20;
+    /** Upper bound on a single feed page. */
+    public static final int MAX_FEED_PAGE_SIZE = 100;
+    /** How many of the most recent comments each feed post carries. */
+    public static final int COMMENT_PREVIEW_SIZE = 3;
+    /** How many of the newest timeline posts the ranked feed chooses from. */
+    public static final int RANKED_WINDOW = 200;
+
+    /**
+     * One page of the user's home feed, newest first, strictly older than {@code cursor}
+     * (null for the first page).
+     */
     @Transactional
-    public List<PostDTO> getFeed(Long userId) {
-        List<User> friends = connectionService.getFriends(userId);
-        friends.add(em.find(User.class, userId));
-
-        List<Post> posts = em.createQuery(
-                        "SELECT DISTINCT p FROM Post p " +
-                                "LEFT JOIN FETCH p.comments " +
-                                "LEFT JOIN FETCH p.likes " +
-                                "WHERE p.author IN :users " +
-                                "ORDER BY p.createdAt DESC", Post.class)
-                .setParameter("users", friends)
-                .getResultList();
+    public FeedPageDTO getFeed(Long userId, FeedCursor cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        FeedPageDTO cached = feedCache.get(userId, cursor, pageSize);
+        if (cached != null) {
+            return withOwnPendingLikes(userId, cached);
+        }
+        long readStamp = feedCache.startRead();
+        // one extra row tells us whether another page exists
+        TimelineService.Page timeline = timelineService.readPage(userId, cursor, pageSize + 1);
+        List<Long> postIds = timeline.getEntries().stream()
+                .map(FeedCursor::getPostId)
+                .collect(Collectors.toList());
+        boolean hasMore = postIds.size() > pageSize;
+        if (hasMore) {
+            postIds = postIds.subList(0, pageSize);
+        }
+        if (postIds.isEmpty()) {
+            return new FeedPageDTO(new ArrayList<>(), null);
+        }
 
-        return posts.stream().map(post -> {
-            PostDTO dto = new PostDTO();
-            dto.setId(post.getId());
-            dto.setAuthorId(post.getAuthor().getId());
-            dto.setContent(post.getContent());
-            dto.setImageUrl(post.getImageUrl());
-            dto.setLink(post.getLink());
-            dto.setCreatedAt(post.getCreatedAt());
-            dto.setAuthorUsername(post.getAuthor().getName());
+        List<PostDTO> page = renderPage(postIds);
 
-            dto.setCommentContents(
-                    post.getComments().stream()
-                            .map(Comment::getText)
-                            .collect(Collectors.toList())
-            );
+        String nextCursor = null;
+        if (hasMore && !page.isEmpty()) {
+            PostDTO last = page.get(page.size() - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        FeedPageDTO result = new FeedPageDTO(page, nextCursor);
+        feedCache.put(userId, cursor, pageSize, result, timeline.getPulledAuthors(), readStamp);
+        return withOwnPendingLikes(userId, result);
+    }
+
+    /**
+     * One page of the user's home feed in ranked order, starting {@code offset} posts in.
+     * <p>
+     * Ranking reorders the newest {@link #RANKED_WINDOW} posts of the timeline by their
+     * precomputed score plus the user's affinity with each author (see {@link FeedRankingService}),
+     * so a ranked page costs a bounded window read and two small queries on top of a
+     * chronological one. Scores move with every like, so ranked pages are not cached, and
+     * the offset cursor is only stable as long as the window's order is.
+     */
+    public FeedPageDTO getRankedFeed(Long userId, int offset, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        List<Long> window = timelineService.readPage(userId, null, RANKED_WINDOW).getEntries().stream()
+                .map(FeedCursor::getPostId)
+                .collect(Collectors.toList());
+        List<Long> ranked = feedRankingService.rank(userId, window);
+        if (offset >= ranked.size()) {
+            return new FeedPageDTO(new ArrayList<>(), null);
+        }
+        int end = Math.min(offset + pageSize, ranked.size());
+        List<PostDTO> page = renderPage(ranked.subList(offset, end));
+        return withOwnPendingLikes(userId, new FeedPageDTO(page, end < ranked.size() ? String.valueOf(end) : null));
+    }
+
+    /**
+     * The page as {@code readerId} should see it, counting their likes still waiting in
+     * {@link LikeBuffer}. Cached pages are shared, so affected posts are copied, not changed.
+     */
+    private FeedPageDTO withOwnPendingLikes(Long readerId, FeedPageDTO page) {
+        List<PostDTO> posts = null;
+        for (int i = 0; i < page.getPosts().size(); i++) {
+            PostDTO post = page.getPosts().get(i);
+            if (likeBuffer.isPending(post.getId(), readerId)) {
+                if (posts == null) {
+                    posts = new ArrayList<>(page.getPosts());
+                }
+                PostDTO liked = new PostDTO(post.getId(), post.getAuthorId(), post.getAuthorUsername(),
+                        post.getContent(), post.getImageUrl(), post.getLink(), post.getCreatedAt(),
+                        post.getLikesCount() + 1, post.getCommentCount());
+                liked.setCommentContents(post.getCommentContents());
+                posts.set(i, liked);
+            }
+        }
+        return posts == null ? page : new FeedPageDTO(posts, page.getNextCursor());
+    }
+
+    /**
+     * Feed posts for the given ids, in the order given.
+     * Two set-based queries, each bounded by the page size: the posts themselves with
+     * their counters, projected straight into DTOs, and a short comment preview.
+     * Fetch-joining comments and likes together would return comments x likes rows per post.
+     */
+    private List<PostDTO> renderPage(List<Long> postIds) {
+        Map<Long, PostDTO> byId = new HashMap<>();
+        em.createQuery("""
+                SELECT new app.DTO.PostDTO(p.id, a.id, a.name, p.content, p.imageUrl, p.link, p.createdAt,
+                                           COALESCE(p.likeCount, 0), COALESCE(p.commentCount, 0))
+                FROM Post p JOIN p.author a
+                WHERE p.id IN :ids
+                """, PostDTO.class)
+                .setParameter("ids", postIds)
+                .getResultList()
+                .forEach(dto -> byId.put(dto.getId(), dto));
+
+        Map<Long, List<String>> previews = new HashMap<>();
+        em.createQuery("""
+                SELECT x.postId, x.text FROM (
+                    SELECT c.post.id AS postId, c.text AS text,
+                           row_number() OVER (PARTITION BY c.post.id ORDER BY c.createdAt DESC, c.id DESC) AS rn
+                    FROM Comment c
+                    WHERE c.post.id IN :ids
+                ) x
+                WHERE x.rn <= :previewSize
+                ORDER BY x.postId, x.rn DESC
+                """, Object[].class)
+                .setParameter("ids", postIds)
+                .setParameter("previewSize", COMMENT_PREVIEW_SIZE)
+                .getResultList()
+                .forEach(row -> previews.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]));
+
+        List<PostDTO> page = new ArrayList<>();
+        for (Long id : postIds) {
+            PostDTO dto = byId.get(id);
+            // a post deleted since its id was read is simply skipped
+            if (dto != null) {
+                dto.setCommentContents(previews.getOrDefault(id, new ArrayList<>()));
+                page.add(dto);
+            }
+        }
+        return page;
+    }
 
-            dto.setLikesCount(post.getLikes().size());
+    /** Put a new post into timelines and tell the feed cache whose pages it changes. */
+    private void deliver(Post post) {
+        Long authorId = post.getAuthor().getId();
+        if (timelineService.fanOut(post)) {
+            feedChanges.fire(FeedChangeEvent.postCreated(audienceOf(authorId)));
+        } else {
+            feedChanges.fire(FeedChangeEvent.pulledPostCreated(authorId));
+        }
+    }
 
-            return dto;
-        }).collect(Collectors.toList());
+    /** Everyone whose timeline receives a post by this author: the author and their friends. */
+    private List<Long> audienceOf(Long authorId) {
+        List<Long> audience = connectionService.getFriendIds(authorId);
+        audience.add(authorId);
+        return audience;
     }
 
     public void updatePost(Long postId, String content, String imageUrl, String link) {
@@ -114,12 +265,17 @@ public class PostService {
             post.setLink(link);
             post.setUpdatedAt(LocalDateTime.now());
             em.merge(post);
+            feedChanges.fire(FeedChangeEvent.postChanged(postId));
         }
     }
 
     public void deletePost(Long postId) {
         Post post = em.find(Post.class, postId);
-        if (post != null) em.remove(post);
+        if (post != null) {
+            timelineService.removePost(postId);
+            em.remove(post);
+            feedChanges.fire(FeedChangeEvent.postChanged(postId));
+        }
     }
 
     public void addComment(Long postId, Long userId, String text) {
@@ -138,13 +294,19 @@ public class PostService {
         comment.setText(text);
         comment.setCreatedAt(LocalDateTime.now());
         em.persist(comment);
+        em.createQuery("UPDATE Post p SET p.commentCount = p.commentCount + 1 WHERE p.id = :postId")
+                .setParameter("postId", postId)
+                .executeUpdate();
+        feedRankingService.rescore(postId);
+        feedRankingService.recordEngagement(userId, post.getAuthor().getId(), FeedRankingService.COMMENT_AFFINITY);
+        feedChanges.fire(FeedChangeEvent.postChanged(postId));
 
         if (!userId.equals(post.getAuthor().getId())) {
             NotificationEvent event = new NotificationEvent();
             event.setEventType("COMMENT");
             event.setFromUserId(userId);
             event.setToUserId(post.getAuthor().getId());
-            event.setMessage(user.getName() + " commented on your post.");
+            event.setActorName(user.getName());
             event.setPostId(postId);
 
             notificationProducer.sendNotification(event);
@@ -152,44 +314,137 @@ public class PostService {
     }
 
     private boolean checkIfFriend(Long userId, Long postAuthorId) {
-        String query = "SELECT c FROM Connection c WHERE (c.sender.id = :userId AND c.receiver.id = :postAuthorId OR c.sender.id = :postAuthorId AND c.receiver.id = :userId) AND c.status = :status";
-        List<Connection> connections = em.createQuery(query, Connection.class)
-                .setParameter("userId", userId)
-                .setParameter("postAuthorId", postAuthorId)
-                .setParameter("status", Status.ACCEPTED)
-                .getResultList();
-
-        return !connections.isEmpty();
+        return connectionService.areFriends(userId, postAuthorId);
     }
 
 
+    /**
+     * Accept a like; it is written within a second by {@link LikeBuffer}, which keeps it
+     * visible to the liker meanwhile. Liking a post twice is a no-op.
+     */
     public void likePost(Long postId, Long userId) {
-        Post post = em.find(Post.class, postId);
-        User user = em.find(User.class, userId);
+        Long authorId = em.createQuery("SELECT p.author.id FROM Post p WHERE p.id = :postId", Long.class)
+                .setParameter("postId", postId)
+                .getSingleResult();
 
         // Check if the user is friends with the post's author
-        boolean isFriend = checkIfFriend(userId, post.getAuthor().getId());
+        boolean isFriend = checkIfFriend(userId, authorId);
         if (!isFriend) {
             throw new RuntimeException("You can only like posts from your friends.");
         }
 
-        if (!post.getLikes().contains(user)) {
-            post.getLikes().add(user);
-            em.merge(post);
+        if (likeBuffer.isPending(postId, userId)) {
+            return;
+        }
+        boolean liked = !em.createNativeQuery("SELECT 1 FROM post_likes WHERE post_id = :postId AND user_id = :userId")
+                .setParameter("postId", postId)
+                .setParameter("userId", userId)
+                .getResultList()
+                .isEmpty();
+        if (!liked) {
+            likeBuffer.add(postId, userId);
+        }
+    }
 
-            if (!userId.equals(post.getAuthor().getId())) {
+    /**
+     * Write buffered likes, {@code post_likes} rows in one JDBC batch, then per post one
+     * counter update, one rescore, one feed invalidation and one notification for all of
+     * its new likers. Likes already present, or whose post or user has since been deleted,
+     * are skipped, so a chunk can be written again after a failure.
+     *
+     * @param likesByPost liker ids by post id
+     */
+    public void writeLikes(Map<Long, Set<Long>> likesByPost) {
+        Map<Long, List<Long>> inserted = new LinkedHashMap<>();
+        em.flush();
+        em.unwrap(Session.class).doWork(jdbc -> {
+            List<long[]> likes = new ArrayList<>();
+            try (PreparedStatement insert = jdbc.prepareStatement(INSERT_LIKE)) {
+                for (Map.Entry<Long, Set<Long>> entry : likesByPost.entrySet()) {
+                    for (Long userId : entry.getValue()) {
+                        long postId = entry.getKey();
+                        insert.setLong(1, postId);
+                        insert.setLong(2, userId);
+                        insert.setLong(3, postId);
+                        insert.setLong(4, userId);
+                        insert.setLong(5, postId);
+                        insert.setLong(6, userId);
+                        insert.addBatch();
+                        likes.add(new long[]{postId, userId});
+                    }
+                }
+                int[] counts = insert.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        inserted.computeIfAbsent(likes.get(i)[0], k -> new ArrayList<>()).add(likes.get(i)[1]);
+                    }
+                }
+            }
+        });
+        if (inserted.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> authors = new HashMap<>();
+        em.createQuery("SELECT p.id, p.author.id FROM Post p WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", inserted.keySet())
+                .getResultList()
+                .forEach(row -> authors.put((Long) row[0], (Long) row[1]));
+        // one notification per post names one of its new likers, as a folded one would
+        Map<Long, Long> namedLiker = new HashMap<>();
+        inserted.forEach((postId, userIds) -> userIds.stream()
+                .filter(id -> !id.equals(authors.get(postId)))
+                .reduce((first, second) -> second)
+                .ifPresent(id -> namedLiker.put(postId, id)));
+        Map<Long, String> names = new HashMap<>();
+        if (!namedLiker.isEmpty()) {
+            em.createQuery("SELECT u.id, u.name FROM User u WHERE u.id IN :ids", Object[].class)
+                    .setParameter("ids", new HashSet<>(namedLiker.values()))
+                    .getResultList()
+                    .forEach(row -> names.put((Long) row[0], (String) row[1]));
+        }
+
+        for (Map.Entry<Long, List<Long>> entry : inserted.entrySet()) {
+            Long postId = entry.getKey();
+            Long authorId = authors.get(postId);
+            List<Long> likers = entry.getValue();
+            em.createQuery("UPDATE Post p SET p.likeCount = p.likeCount + :likes WHERE p.id = :postId")
+                    .setParameter("likes", likers.size())
+                    .setParameter("postId", postId)
+                    .executeUpdate();
+            feedRankingService.rescore(postId);
+            feedRankingService.recordEngagements(likers, authorId, FeedRankingService.LIKE_AFFINITY);
+            feedChanges.fire(FeedChangeEvent.postChanged(postId));
+
+            Long named = namedLiker.get(postId);
+            if (named != null) {
                 NotificationEvent event = new NotificationEvent();
                 event.setEventType("LIKE");
-                event.setFromUserId(userId);
-                event.setToUserId(post.getAuthor().getId());
-                event.setMessage(user.getName() + " liked your post.");
+                event.setFromUserId(named);
+                event.setToUserId(authorId);
+                event.setActorName(names.get(named));
                 event.setPostId(postId);
+                event.setActorCount((int) likers.stream().filter(id -> !id.equals(authorId)).count());
 
                 notificationProducer.sendNotification(event);
             }
         }
     }
 
+    /**
+     * Fill likeCount/commentCount for posts created before the counters existed.
+     * Touches only rows where a counter is still null.
+     */
+    public void recountLegacyCounters() {
+        em.createQuery("""
+                UPDATE Post p
+                SET p.likeCount = (SELECT COUNT(l) FROM Post p2 JOIN p2.likes l WHERE p2.id = p.id),
+                    p.commentCount = (SELECT COUNT(c) FROM Comment c WHERE c.post.id = p.id)
+                WHERE p.likeCount IS NULL OR p.commentCount IS NULL
+                """)
+                .executeUpdate();
+    }
+
 
 
     public List<Post> listPosts(Long groupId, User requester) {
@@ -216,9 +471,11 @@ public class PostService {
         if (p == null || !p.getGroup().getId().equals(groupId)) {
             throw new BadRequestException("Post not found in this group");
         }
+        timelineService.removePost(postId);
         g.removePost(p);
         em.remove(em.contains(p) ? p : em.merge(p));
         em.merge(g);
+        feedChanges.fire(FeedChangeEvent.postChanged(postId));
     }
 
 
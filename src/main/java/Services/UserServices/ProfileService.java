@@ -3,6 +3,8 @@ package Services.UserServices;
 import Domain.User;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.mindrot.jbcrypt.BCrypt;
@@ -13,6 +15,8 @@ public class ProfileService {
     UserService userService;
     @PersistenceContext(unitName = "persistence-unit")
     private EntityManager entityManager;
+    @Inject
+    private Event<UserProfileChanged> profileChanges;
 
     public User updateProfile(Long userId, String name, String bio, String email, String password) {
         User user = entityManager.find(User.class, userId);
@@ -29,6 +33,7 @@ public class ProfileService {
         }
 
         entityManager.merge(user);
+        profileChanges.fire(new UserProfileChanged(user.getId(), user.getName(), user.getEmail()));
         return user;
     }
 
@@ -0,0 +1,164 @@
+package Services.UserServices;
+
+import app.DTO.FriendSuggestionDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import util.LongAdjacencyMap;
+import util.ResultStreams;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Accepted friendships held in memory as primitive adjacency lists (one sorted
+ * {@code long[]} per user, see {@link LongAdjacencyMap}), so friend lookups, friendship
+ * checks and friend counts never touch the database or create boxed ids.
+ * <p>
+ * Loaded from the {@code friendship} table at startup, kept current from {@link FriendshipAccepted}
+ * events after commit, and rebuilt nightly to pick up changes made outside the application.
+ */
+@Singleton
+@Startup
+@DependsOn("DataBootstrap")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SocialGraphIndex {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongAdjacencyMap graph = new LongAdjacencyMap(0);
+    /** friendships accepted while a rebuild is reading the table; replayed onto the new graph */
+    private List<long[]> acceptedDuringRebuild;
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    @Schedule(hour = "4", persistent = false)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            acceptedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        LongAdjacencyMap fresh = new LongAdjacencyMap(1024);
+        // the friendship table already holds both directions of every friendship
+        ResultStreams.forEach(em, em.createQuery(
+                "SELECT u.id, f.id FROM User u JOIN u.friends f", Object[].class),
+                row -> fresh.append((Long) row[0], (Long) row[1]));
+        fresh.compact();
+
+        lock.writeLock().lock();
+        try {
+            for (long[] edge : acceptedDuringRebuild) {
+                fresh.add(edge[0], edge[1]);
+                fresh.add(edge[1], edge[0]);
+            }
+            acceptedDuringRebuild = null;
+            graph = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onFriendshipAccepted(@Observes(during = TransactionPhase.AFTER_SUCCESS) FriendshipAccepted event) {
+        long a = event.getUserId();
+        long b = event.getOtherUserId();
+        if (a == b) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            graph.add(a, b);
+            graph.add(b, a);
+            if (acceptedDuringRebuild != null) {
+                acceptedDuringRebuild.add(new long[]{a, b});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean areFriends(long userId, long otherUserId) {
+        lock.readLock().lock();
+        try {
+            return graph.contains(userId, otherUserId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The user's friends in ascending id order. The array is the caller's own copy. */
+    public long[] friendIds(long userId) {
+        lock.readLock().lock();
+        try {
+            return graph.get(userId).clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int friendCount(long userId) {
+        lock.readLock().lock();
+        try {
+            return graph.degree(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top {@code k} friends-of-friends of a user who are not already friends and not in
+     * {@code excluded} (ascending). The friend lists are copy-on-write, so they are collected
+     * under the read lock and tallied after releasing it.
+     */
+    List<FriendSuggestionDTO> suggest(long userId, long[] excluded, int k, SuggestionRanking ranking) {
+        long[] friends;
+        long[][] friendsOfFriends;
+        lock.readLock().lock();
+        try {
+            friends = graph.get(userId);
+            friendsOfFriends = new long[friends.length][];
+            for (int i = 0; i < friends.length; i++) {
+                friendsOfFriends[i] = graph.get(friends[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return FriendSuggestionEngine.topK(userId, friends, friendsOfFriends, excluded, k, ranking);
+    }
+
+    /** Size figures for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long edges = graph.entries() / 2;
+            long bytes = graph.estimatedBytes();
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("users", graph.size());
+            out.put("friendships", edges);
+            out.put("estimatedBytes", bytes);
+            out.put("bytesPerFriendship", edges == 0 ? 0.0 : (double) bytes / edges);
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
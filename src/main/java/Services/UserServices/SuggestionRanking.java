@@ -0,0 +1,25 @@
+package Services.UserServices;
+
+/**
+ * How friend suggestions are ordered.
+ */
+public enum SuggestionRanking {
+    /** by number of mutual friends, Adamic-Adar breaking ties */
+    MUTUAL_FRIENDS,
+    /** by Adamic-Adar score, number of mutual friends breaking ties */
+    ADAMIC_ADAR;
+
+    /**
+     * @return the ranking for "mutual" (or null) and "adamic-adar"
+     * @throws IllegalArgumentException for anything else
+     */
+    public static SuggestionRanking parse(String value) {
+        if (value == null || value.equals("mutual")) {
+            return MUTUAL_FRIENDS;
+        }
+        if (value.equals("adamic-adar")) {
+            return ADAMIC_ADAR;
+        }
+        throw new IllegalArgumentException("Unknown ranking: " + value);
+    }
+}
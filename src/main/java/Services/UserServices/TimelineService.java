@@ -0,0 +1,272 @@
+package Services.UserServices;
+
+import Domain.Post;
+import Domain.TimelineEntry;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Home timelines, delivered by a hybrid push/pull strategy.
+ * <p>
+ * A new post always goes into the author's own timeline. For ordinary authors it is
+ * also pushed into the timeline of each accepted friend, inside the transaction that
+ * creates the post, so reading a feed is a bounded, indexed lookup by owner.
+ * <p>
+ * Authors that {@link FanoutPolicy} marks as high fan-out are not pushed; readers pull
+ * their recent posts by (author, createdAt) index at read time and merge them with
+ * their own timeline page.
+ */
+@Stateless
+public class TimelineService {
+
+    /** How many of an author's past posts a new friend gets backfilled with. */
+    public static final int MAX_TIMELINE_ENTRIES = 800;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EJB
+    private FanoutPolicy fanoutPolicy;
+
+    /**
+     * A page of timeline positions plus the high fan-out authors that were merged into it.
+     */
+    public static class Page {
+        private final List<FeedCursor> entries;
+        private final Set<Long> pulledAuthors;
+
+        Page(List<FeedCursor> entries, Set<Long> pulledAuthors) {
+            this.entries = entries;
+            this.pulledAuthors = pulledAuthors;
+        }
+
+        /** (createdAt, postId) of each post, newest first */
+        public List<FeedCursor> getEntries() {
+            return entries;
+        }
+
+        public Set<Long> getPulledAuthors() {
+            return pulledAuthors;
+        }
+    }
+
+    /**
+     * Deliver a freshly persisted post: always to its author, and to every accepted
+     * friend unless the author is high fan-out.
+     *
+     * @return true if the post was pushed to friends, false if friends will pull it
+     */
+    public boolean fanOut(Post post) {
+        em.persist(new TimelineEntry(post.getAuthor().getId(), post));
+        if (fanoutPolicy.isHighFanout(post.getAuthor().getId())) {
+            return false;
+        }
+        pushToFriends(post);
+        return true;
+    }
+
+    /**
+     * Push a post to every friend of its author: one INSERT ... SELECT over the author's
+     * rows in the friendship table, whatever the friend count. That table holds each
+     * friendship once per direction and never the author themself, so no guards are needed.
+     */
+    void pushToFriends(Post post) {
+        em.createQuery("""
+                INSERT INTO TimelineEntry (ownerId, postId, authorId, createdAt)
+                SELECT f.id, :postId, u.id, :createdAt FROM User u JOIN u.friends f
+                WHERE u.id = :authorId
+                """)
+                .setParameter("postId", post.getId())
+                .setParameter("authorId", post.getAuthor().getId())
+                .setParameter("createdAt", post.getCreatedAt())
+                .executeUpdate();
+    }
+
+    /**
+     * Newest-first positions of a user's feed strictly after {@code cursor}
+     * (null for the first page), at most {@code limit} of them.
+     * <p>
+     * Pushed posts come from the owner's timeline and pulled posts from the
+     * high fan-out friends' own posts; both are keyset range scans of at most
+     * {@code limit} rows, so every page costs the same no matter how deep it is.
+     */
+    public Page readPage(Long ownerId, FeedCursor cursor, int limit) {
+        List<FeedCursor> pushed = keysetPage("""
+                SELECT t.createdAt, t.postId FROM TimelineEntry t
+                WHERE t.ownerId = :ownerId
+                %s
+                ORDER BY t.createdAt DESC, t.postId DESC
+                """, "AND (t.createdAt, t.postId) < (:createdAt, :postId)", cursor, limit)
+                .setParameter("ownerId", ownerId)
+                .getResultList()
+                .stream()
+                .map(row -> new FeedCursor((LocalDateTime) row[0], (Long) row[1]))
+                .collect(Collectors.toList());
+
+        Set<Long> pulledAuthors = highFanoutFriends(ownerId);
+        if (pulledAuthors.isEmpty()) {
+            return new Page(pushed, pulledAuthors);
+        }
+
+        List<FeedCursor> pulled = keysetPage("""
+                SELECT p.createdAt, p.id FROM Post p
+                WHERE p.author.id IN :authors
+                %s
+                ORDER BY p.createdAt DESC, p.id DESC
+                """, "AND (p.createdAt, p.id) < (:createdAt, :postId)", cursor, limit)
+                .setParameter("authors", pulledAuthors)
+                .getResultList()
+                .stream()
+                .map(row -> new FeedCursor((LocalDateTime) row[0], (Long) row[1]))
+                .collect(Collectors.toList());
+
+        // merge both newest-first lists; a post can be in both if the author crossed the threshold
+        TreeSet<FeedCursor> merged = new TreeSet<>(NEWEST_FIRST);
+        merged.addAll(pushed);
+        merged.addAll(pulled);
+        return new Page(merged.stream().limit(limit).collect(Collectors.toList()), pulledAuthors);
+    }
+
+    private static final Comparator<FeedCursor> NEWEST_FIRST =
+            Comparator.comparing(FeedCursor::getCreatedAt)
+                    .thenComparing(FeedCursor::getPostId)
+                    .reversed();
+
+    private TypedQuery<Object[]> keysetPage(String jpql, String afterCursor, FeedCursor cursor, int limit) {
+        TypedQuery<Object[]> query = em.createQuery(
+                String.format(jpql, cursor == null ? "" : afterCursor), Object[].class);
+        if (cursor != null) {
+            query.setParameter("createdAt", cursor.getCreatedAt())
+                    .setParameter("postId", cursor.getPostId());
+        }
+        return query.setMaxResults(limit);
+    }
+
+    /** The owner's accepted friends that are currently delivered by pull. */
+    private Set<Long> highFanoutFriends(Long ownerId) {
+        Set<Long> highFanout = fanoutPolicy.getHighFanoutAuthors();
+        if (highFanout.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(em.createQuery("""
+                SELECT f.id FROM User u JOIN u.friends f
+                WHERE u.id = :ownerId AND f.id IN :authors
+                """, Long.class)
+                .setParameter("ownerId", ownerId)
+                .setParameter("authors", highFanout)
+                .getResultList());
+    }
+
+    /**
+     * Copy the most recent posts of {@code authorId} into {@code ownerId}'s timeline.
+     * Used when a friendship is accepted, so the new friend's history shows up right away.
+     */
+    public void backfill(Long ownerId, Long authorId) {
+        List<Long> recent = em.createQuery("""
+                SELECT p.id FROM Post p
+                WHERE p.author.id = :authorId
+                AND NOT EXISTS (SELECT 1 FROM TimelineEntry t WHERE t.ownerId = :ownerId AND t.postId = p.id)
+                ORDER BY p.createdAt DESC
+                """, Long.class)
+                .setParameter("authorId", authorId)
+                .setParameter("ownerId", ownerId)
+                .setMaxResults(MAX_TIMELINE_ENTRIES)
+                .getResultList();
+        if (recent.isEmpty()) {
+            return;
+        }
+        em.createQuery("""
+                INSERT INTO TimelineEntry (ownerId, postId, authorId, createdAt)
+                SELECT :ownerId, p.id, p.author.id, p.createdAt FROM Post p
+                WHERE p.id IN :ids
+                """)
+                .setParameter("ownerId", ownerId)
+                .setParameter("ids", recent)
+                .executeUpdate();
+    }
+
+    /**
+     * Push the posts an author wrote while delivered by pull to all of their friends, when
+     * they move back to push and readers stop pulling them. Pulled posts are the ones in no
+     * timeline but the author's own; the newest {@link #MAX_TIMELINE_ENTRIES} are pushed.
+     * Commits on its own, so the rows are visible once it returns.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void pushPulledPosts(Long authorId) {
+        List<Long> pulled = em.createQuery("""
+                SELECT p.id FROM Post p
+                WHERE p.author.id = :authorId
+                AND NOT EXISTS (SELECT 1 FROM TimelineEntry t WHERE t.postId = p.id AND t.ownerId <> :authorId)
+                ORDER BY p.createdAt DESC
+                """, Long.class)
+                .setParameter("authorId", authorId)
+                .setMaxResults(MAX_TIMELINE_ENTRIES)
+                .getResultList();
+        if (pulled.isEmpty()) {
+            return;
+        }
+        em.createQuery("""
+                INSERT INTO TimelineEntry (ownerId, postId, authorId, createdAt)
+                SELECT f.id, p.id, a.id, p.createdAt FROM Post p JOIN p.author a JOIN a.friends f
+                WHERE p.id IN :ids
+                AND NOT EXISTS (SELECT 1 FROM TimelineEntry t WHERE t.ownerId = f.id AND t.postId = p.id)
+                """)
+                .setParameter("ids", pulled)
+                .executeUpdate();
+    }
+
+    /** Drop a post from every timeline it was pushed to. */
+    public void removePost(Long postId) {
+        em.createQuery("DELETE FROM TimelineEntry t WHERE t.postId = :postId")
+                .setParameter("postId", postId)
+                .executeUpdate();
+    }
+
+    /** Drop every post of a group from all timelines (before the group and its posts are removed). */
+    public void removeGroupPosts(Long groupId) {
+        em.createQuery("""
+                DELETE FROM TimelineEntry t
+                WHERE t.postId IN (SELECT p.id FROM Post p WHERE p.group.id = :groupId)
+                """)
+                .setParameter("groupId", groupId)
+                .executeUpdate();
+    }
+
+    /**
+     * One-off population of the timeline table from existing posts and friendships.
+     * Only runs when the table is still empty (first deployment), after the
+     * friendship table has been filled.
+     */
+    public void rebuildIfEmpty() {
+        boolean empty = em.createQuery("SELECT t.postId FROM TimelineEntry t", Long.class)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+        if (!empty) {
+            return;
+        }
+        em.createQuery("""
+                INSERT INTO TimelineEntry (ownerId, postId, authorId, createdAt)
+                SELECT p.author.id, p.id, p.author.id, p.createdAt FROM Post p
+                """)
+                .executeUpdate();
+        em.createQuery("""
+                INSERT INTO TimelineEntry (ownerId, postId, authorId, createdAt)
+                SELECT f.id, p.id, a.id, p.createdAt FROM Post p JOIN p.author a JOIN a.friends f
+                """)
+                .executeUpdate();
+    }
+}
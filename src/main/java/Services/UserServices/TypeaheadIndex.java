@@ -0,0 +1,171 @@
+package Services.UserServices;
+
+import app.DTO.TypeaheadDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import util.PrefixIndex;
+import util.ResultStreams;
+import util.SearchText;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * As-you-type search over user and group names, ranked by friend count and member count.
+ * <p>
+ * Backed by an immutable {@link PrefixIndex} rebuilt every ten minutes, which also refreshes
+ * the popularity figures. Users and groups created, renamed or deleted since the last
+ * rebuild, and groups whose membership changed, are kept in a small overlay from
+ * {@link UserProfileChanged} and {@link GroupChanged} events; it hides their stale index
+ * entries and is scanned directly.
+ */
+@Singleton
+@Startup
+@DependsOn({"DataBootstrap", "SocialGraphIndex"})
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TypeaheadIndex {
+
+    /** Suggestions returned when the client does not ask for a number. */
+    public static final int DEFAULT_RESULTS = 10;
+    public static final int MAX_RESULTS = 50;
+
+    private static final Comparator<TypeaheadDTO> MOST_POPULAR =
+            Comparator.comparingInt(TypeaheadDTO::getPopularity).reversed();
+
+    @PersistenceContext
+    private EntityManager em;
+    @EJB
+    private SocialGraphIndex socialGraph;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private PrefixIndex index = new PrefixIndex.Builder().build();
+    /** by ref: users and groups changed since the index was built; a null name means deleted */
+    private Map<Long, TypeaheadDTO> changed = new HashMap<>();
+    /** changes made while a rebuild is reading the tables; they become the new overlay */
+    private Map<Long, TypeaheadDTO> changedDuringRebuild;
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    @Schedule(hour = "*", minute = "*/10", persistent = false)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        ResultStreams.forEach(em, em.createQuery(
+                "SELECT u.id, u.name FROM User u WHERE u.name IS NOT NULL", Object[].class), row -> {
+            long id = (Long) row[0];
+            builder.add(ref(TypeaheadDTO.USER, id), (String) row[1], socialGraph.friendCount(id));
+        });
+        ResultStreams.forEach(em, em.createQuery("""
+                SELECT g.id, g.name, COUNT(m) FROM Group g LEFT JOIN g.members m
+                GROUP BY g.id, g.name
+                """, Object[].class), row ->
+                builder.add(ref(TypeaheadDTO.GROUP, (Long) row[0]), (String) row[1], ((Long) row[2]).intValue()));
+        PrefixIndex fresh = builder.build();
+
+        lock.writeLock().lock();
+        try {
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onUserChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserProfileChanged event) {
+        record(new TypeaheadDTO(TypeaheadDTO.USER, event.getUserId(), event.getName(), 0));
+    }
+
+    public void onGroupChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) GroupChanged event) {
+        record(new TypeaheadDTO(TypeaheadDTO.GROUP, event.getGroupId(), event.getName(), event.getMemberCount()));
+    }
+
+    /** Up to {@code limit} users and groups with a word starting with {@code prefix}, most popular first. */
+    public List<TypeaheadDTO> suggest(String prefix, int limit) {
+        int k = Math.max(1, Math.min(limit, MAX_RESULTS));
+        String q = SearchText.normalize(prefix);
+        List<TypeaheadDTO> out = new ArrayList<>(k * 2);
+        lock.readLock().lock();
+        try {
+            Map<Long, TypeaheadDTO> overlay = changed;
+            for (int doc : index.top(q, k, overlay::containsKey)) {
+                long ref = index.ref(doc);
+                out.add(new TypeaheadDTO(type(ref), ref >>> 1, index.label(doc), index.popularity(doc)));
+            }
+            for (TypeaheadDTO dto : overlay.values()) {
+                if (dto.getName() != null && SearchText.hasWordStartingWith(SearchText.normalize(dto.getName()), q)) {
+                    out.add(new TypeaheadDTO(dto.getType(), dto.getId(), dto.getName(), dto.getPopularity()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (TypeaheadDTO dto : out) {
+            if (TypeaheadDTO.USER.equals(dto.getType())) {
+                dto.setPopularity(socialGraph.friendCount(dto.getId()));
+            }
+        }
+        out.sort(MOST_POPULAR);
+        return out.size() > k ? new ArrayList<>(out.subList(0, k)) : out;
+    }
+
+    /** Size figures for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("indexed", index.size());
+            out.put("changedSinceRebuild", changed.size());
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void record(TypeaheadDTO dto) {
+        long ref = ref(dto.getType(), dto.getId());
+        lock.writeLock().lock();
+        try {
+            changed.put(ref, dto);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(ref, dto);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Users and groups share one index: the low bit of a ref tells them apart. */
+    private static long ref(String type, long id) {
+        return id << 1 | (TypeaheadDTO.GROUP.equals(type) ? 1 : 0);
+    }
+
+    private static String type(long ref) {
+        return (ref & 1) == 0 ? TypeaheadDTO.USER : TypeaheadDTO.GROUP;
+    }
+}
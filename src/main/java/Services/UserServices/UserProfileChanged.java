@@ -0,0 +1,30 @@
+package Services.UserServices;
+
+/**
+ * CDI event fired when a user registers or changes their name or email.
+ * Observed after commit by {@link UserSearchIndex}.
+ */
+public class UserProfileChanged {
+
+    private final long userId;
+    private final String name;
+    private final String email;
+
+    public UserProfileChanged(long userId, String name, String email) {
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
@@ -0,0 +1,85 @@
+package Services.UserServices;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import util.ResultStreams;
+import util.TrigramIndex;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * User names and emails held in a {@link TrigramIndex}, so user search intersects a few
+ * posting lists instead of running {@code LIKE '%term%'} over the whole user table.
+ * <p>
+ * Loaded at startup and kept current from {@link UserProfileChanged} events after commit.
+ */
+@Singleton
+@Startup
+@DependsOn("DataBootstrap")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UserSearchIndex {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TrigramIndex index;
+
+    @PostConstruct
+    void init() {
+        long users = em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
+        TrigramIndex fresh = new TrigramIndex((int) Math.min(users, Integer.MAX_VALUE));
+        ResultStreams.forEach(em, em.createQuery(
+                "SELECT u.id, u.name, u.email FROM User u", Object[].class),
+                row -> fresh.append((Long) row[0], (String) row[1], (String) row[2]));
+        fresh.compact();
+        index = fresh;
+    }
+
+    public void onProfileChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserProfileChanged event) {
+        lock.writeLock().lock();
+        try {
+            index.put(event.getUserId(), event.getName(), event.getEmail());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of one page of users whose name or email contains the query, best match first.
+     *
+     * @throws IllegalArgumentException if the query is too short, see {@link TrigramIndex#MIN_QUERY_LENGTH}
+     */
+    public long[] search(String query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(query, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Size figures for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("users", index.size());
+            out.put("estimatedPostingBytes", index.estimatedPostingBytes());
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -2,20 +2,33 @@ package Services.UserServices;
 
 import Domain.Role;
 import Domain.User;
+import app.DTO.UserPageDTO;
 import app.DTO.UserRegistrationDTO;
+import app.DTO.UserSummaryDTO;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import org.mindrot.jbcrypt.BCrypt;
+import util.ResultStreams;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Stateless
 public class UserService {
 
+    /** Users per listing page when the client does not ask for a number. */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
     @PersistenceContext(unitName = "persistence-unit")
     private EntityManager entityManager;
+    @Inject
+    private Event<UserProfileChanged> profileChanges;
 
     public User registerUser(UserRegistrationDTO userDTO) {
         if (userDTO == null || userDTO.getEmail() == null || userDTO.getPassword() == null) {
@@ -39,6 +52,7 @@ public class UserService {
         user.setRole(Role.valueOf(userDTO.getRole().toUpperCase()));
 
         entityManager.persist(user);
+        profileChanges.fire(new UserProfileChanged(user.getId(), user.getName(), user.getEmail()));
         return user;
     }
 
@@ -47,6 +61,33 @@ public class UserService {
         return BCrypt.hashpw(password, BCrypt.gensalt());
     }
 
-    public List<User> getAllUsers() {  return entityManager.createQuery("SELECT u FROM User u", User.class).getResultList();
+    /**
+     * One page of users in id order, starting after {@code afterId} (null for the first page).
+     * Keyset paging: each page is an index range scan on the primary key, however deep.
+     */
+    public UserPageDTO listUsers(Long afterId, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserSummaryDTO> users = entityManager.createQuery("""
+                SELECT new app.DTO.UserSummaryDTO(u.id, u.name) FROM User u
+                WHERE u.id > :after
+                ORDER BY u.id
+                """, UserSummaryDTO.class)
+                .setParameter("after", afterId == null ? 0L : afterId)
+                .setMaxResults(size + 1)
+                .getResultList();
+        if (users.size() <= size) {
+            return new UserPageDTO(users, null);
+        }
+        users = users.subList(0, size);
+        return new UserPageDTO(new ArrayList<>(users), String.valueOf(users.get(size - 1).getId()));
+    }
+
+    /**
+     * Every user, in id order, handed to {@code sink} one at a time as rows arrive from a
+     * scrolling cursor, so memory use does not grow with the number of users.
+     */
+    public void streamAllUsers(Consumer<? super UserSummaryDTO> sink) {
+        ResultStreams.forEach(entityManager, entityManager.createQuery(
+                "SELECT new app.DTO.UserSummaryDTO(u.id, u.name) FROM User u ORDER BY u.id", UserSummaryDTO.class), sink);
     }
 }
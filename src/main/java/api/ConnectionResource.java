@@ -3,13 +3,19 @@ package api;
 import Domain.Connection;
 import Domain.User;
 import Services.UserServices.ConnectionService;
+import Services.UserServices.SuggestionRanking;
+import app.DTO.FriendSuggestionDTO;
+import app.DTO.UserSummaryDTO;
 import jakarta.ejb.EJB;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import util.SearchText;
+import util.TrigramIndex;
 
 import java.util.List;
+import java.util.Map;
 
 @Path("/connections")
 @Produces(MediaType.APPLICATION_JSON)
@@ -31,10 +37,66 @@ public class ConnectionResource {
                     .build();
         }
 
-        connectionService.sendFriendRequest(senderId, receiverId);
+        if (!connectionService.sendFriendRequest(senderId, receiverId)) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("Friend request already exists.")
+                    .build();
+        }
         return Response.ok("Friend request sent.").build();
     }
 
+    /** Send requests to many users at once, e.g. from a contact import. Body: JSON array of user ids. */
+    @POST
+    @Path("/send/batch")
+    public Response sendRequests(@QueryParam("senderId") Long senderId, List<Long> receiverIds) {
+        if (connectionService.findUserById(senderId) == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Invalid senderId.")
+                    .build();
+        }
+        Response invalid = checkBatch(receiverIds);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        List<Long> sent = connectionService.sendFriendRequests(senderId, receiverIds);
+        return Response.ok(Map.of("sent", sent, "skipped", receiverIds.size() - sent.size())).build();
+    }
+
+    /** Accept or reject many pending requests to {@code userId} at once. Body: JSON array of request ids. */
+    @POST
+    @Path("/respond/batch")
+    public Response respondToRequests(@QueryParam("userId") Long userId,
+                                      @QueryParam("accept") boolean accept,
+                                      List<Long> requestIds) {
+        if (userId == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("userId is required.")
+                    .build();
+        }
+        Response invalid = checkBatch(requestIds);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        List<Long> answered = connectionService.respondToRequests(userId, requestIds, accept);
+        return Response.ok(Map.of("answered", answered, "skipped", requestIds.size() - answered.size())).build();
+    }
+
+    private static Response checkBatch(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Request body must be a non-empty array of ids.")
+                    .build();
+        }
+        if (ids.size() > ConnectionService.MAX_BATCH) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("At most " + ConnectionService.MAX_BATCH + " ids per batch.")
+                    .build();
+        }
+        return null;
+    }
+
     @POST
     @Path("/respond")
     public Response respondToRequest(@QueryParam("requestId") Long requestId, @QueryParam("accept") boolean accept) {
@@ -50,21 +112,38 @@ public class ConnectionResource {
 
     @GET
     @Path("/friends")
-    public List<User> getFriends(@QueryParam("userId") Long userId) {
-        System.out.println("connectionService = " + connectionService);
+    public List<UserSummaryDTO> getFriends(@QueryParam("userId") Long userId) {
         return connectionService.getFriends(userId);
     }
 
+    @GET
+    @Path("/friends/count")
+    public Response getFriendCount(@QueryParam("userId") Long userId) {
+        if (userId == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("userId is required.")
+                    .build();
+        }
+        return Response.ok(Map.of("userId", userId, "count", connectionService.getFriendCount(userId))).build();
+    }
+
     @GET
     @Path("/search")
-    public Response searchUsers(@QueryParam("query") String query) {
+    public Response searchUsers(@QueryParam("query") String query,
+                                @QueryParam("offset") @DefaultValue("0") int offset,
+                                @QueryParam("limit") @DefaultValue("" + ConnectionService.DEFAULT_SEARCH_RESULTS) int limit) {
         if (query == null || query.trim().isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity("Search query must not be empty.")
                     .build();
         }
+        if (SearchText.normalize(query).length() < TrigramIndex.MIN_QUERY_LENGTH) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Search query must be at least " + TrigramIndex.MIN_QUERY_LENGTH + " characters.")
+                    .build();
+        }
 
-        List<User> users = connectionService.searchUsers(query);
+        List<UserSummaryDTO> users = connectionService.searchUsers(query, offset, limit);
 
         if (users == null || users.isEmpty()) {
             return Response.status(Response.Status.NOT_FOUND)
@@ -77,10 +156,21 @@ public class ConnectionResource {
 
     @GET
     @Path("/suggest")
-    public Response suggestFriends(@QueryParam("userId") Long userId) {
-        List<User> suggestedFriends = connectionService.suggestFriends(userId);
+    public Response suggestFriends(@QueryParam("userId") Long userId,
+                                   @QueryParam("limit") @DefaultValue("" + ConnectionService.DEFAULT_SUGGESTIONS) int limit,
+                                   @QueryParam("rank") @DefaultValue("mutual") String rank) {
+        SuggestionRanking ranking;
+        try {
+            ranking = SuggestionRanking.parse(rank);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        }
+
+        List<FriendSuggestionDTO> suggestedFriends = connectionService.suggestFriends(userId, limit, ranking);
 
-        if (suggestedFriends == null || suggestedFriends.isEmpty()) {
+        if (suggestedFriends.isEmpty()) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("No friend suggestions found.")
                     .build();
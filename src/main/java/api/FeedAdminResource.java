@@ -0,0 +1,41 @@
+package api;
+
+import Services.UserServices.FanoutPolicy;
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.Map;
+
+/**
+ * Runtime tuning of feed delivery.
+ */
+@Path("/admin/feed")
+@Produces(MediaType.APPLICATION_JSON)
+public class FeedAdminResource {
+
+    @EJB
+    private FanoutPolicy fanoutPolicy;
+
+    @GET
+    @Path("/fanout-threshold")
+    public Map<String, Object> getFanoutThreshold() {
+        return Map.of(
+                "threshold", fanoutPolicy.getThreshold(),
+                "highFanoutAuthors", fanoutPolicy.getHighFanoutAuthors().size()
+        );
+    }
+
+    /** Authors with at least this many friends are pulled at read time instead of pushed. */
+    @PUT
+    @Path("/fanout-threshold")
+    public Response setFanoutThreshold(@QueryParam("value") int threshold) {
+        // checked here: an exception thrown inside the bean would reach us wrapped in EJBException
+        if (threshold < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Threshold must be positive").build();
+        }
+        fanoutPolicy.setThreshold(threshold);
+        return Response.ok(getFanoutThreshold()).build();
+    }
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import jakarta.annotation.security.*;
+import util.JsonStreaming;
 
 
 @Path("/groups")
@@ -67,10 +68,9 @@ public class GroupResource {
 
 
     @GET
-    public List<GroupDetailsDTO> listGroups() {
-        return groupService.listAllGroups().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    @Produces({MediaType.APPLICATION_JSON, JsonStreaming.NDJSON})
+    public Response listGroups(@Context HttpHeaders headers) {
+        return JsonStreaming.ok(headers, groupService::streamGroupDetails).build();
     }
 
 
@@ -0,0 +1,134 @@
+package api;
+
+import Services.UserServices.FeedCache;
+import Services.UserServices.LikeBuffer;
+import Services.UserServices.SocialGraphIndex;
+import Services.UserServices.TypeaheadIndex;
+import Services.UserServices.UserSearchIndex;
+import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import notificationModule.NotificationOutboxRelay;
+import notificationModule.NotificationStreams;
+import notificationModule.UnreadCounters;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operational figures for sizing in-process caches and indexes.
+ */
+@Path("/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class MetricsResource {
+
+    @Inject
+    private FeedCache feedCache;
+    @EJB
+    private SocialGraphIndex socialGraph;
+    @EJB
+    private UserSearchIndex userSearch;
+    @EJB
+    private TypeaheadIndex typeahead;
+    @EJB
+    private NotificationOutboxRelay notificationOutbox;
+    @EJB
+    private NotificationStreams notificationStreams;
+    @EJB
+    private UnreadCounters unreadCounters;
+    @EJB
+    private LikeBuffer likeBuffer;
+    @PersistenceUnit(unitName = "persistence-unit")
+    private EntityManagerFactory emf;
+
+    @GET
+    @Path("/feed-cache")
+    public Map<String, Object> feedCache() {
+        return feedCache.stats();
+    }
+
+    @GET
+    @Path("/social-graph")
+    public Map<String, Object> socialGraph() {
+        return socialGraph.stats();
+    }
+
+    @GET
+    @Path("/user-search")
+    public Map<String, Object> userSearch() {
+        return userSearch.stats();
+    }
+
+    @GET
+    @Path("/typeahead")
+    public Map<String, Object> typeahead() {
+        return typeahead.stats();
+    }
+
+    @GET
+    @Path("/notification-outbox")
+    public Map<String, Object> notificationOutbox() {
+        return notificationOutbox.stats();
+    }
+
+    @GET
+    @Path("/notification-streams")
+    public Map<String, Object> notificationStreams() {
+        return notificationStreams.stats();
+    }
+
+    @GET
+    @Path("/unread-counters")
+    public Map<String, Object> unreadCounters() {
+        return unreadCounters.stats();
+    }
+
+    @GET
+    @Path("/like-buffer")
+    public Map<String, Object> likeBuffer() {
+        return likeBuffer.stats();
+    }
+
+    /** Hibernate second-level and query cache hit rates, overall and per region. */
+    @GET
+    @Path("/second-level-cache")
+    public Map<String, Object> secondLevelCache() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : stats.getSecondLevelCacheRegionNames()) {
+            regions.put(region, regionStats(stats.getCacheRegionStatistics(region)));
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", stats.isStatisticsEnabled());
+        out.put("hits", stats.getSecondLevelCacheHitCount());
+        out.put("misses", stats.getSecondLevelCacheMissCount());
+        out.put("puts", stats.getSecondLevelCachePutCount());
+        out.put("queryCacheHits", stats.getQueryCacheHitCount());
+        out.put("queryCacheMisses", stats.getQueryCacheMissCount());
+        out.put("regions", regions);
+        return out;
+    }
+
+    private static Map<String, Object> regionStats(CacheRegionStatistics region) {
+        long lookups = region.getHitCount() + region.getMissCount();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("hits", region.getHitCount());
+        out.put("misses", region.getMissCount());
+        out.put("puts", region.getPutCount());
+        out.put("hitRate", lookups == 0 ? 0.0 : (double) region.getHitCount() / lookups);
+        if (region.getElementCountInMemory() != CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN) {
+            out.put("entries", region.getElementCountInMemory());
+        }
+        return out;
+    }
+}
@@ -1,8 +1,11 @@
 package api;
 
 import Domain.User;
+import Services.UserServices.FeedCursor;
+import Services.UserServices.LikeBuffer;
 import Services.UserServices.PostService;
 import app.DTO.CommentDTO;
+import app.DTO.FeedPageDTO;
 import app.DTO.PostDTO;
 import Domain.Post;
 import jakarta.ejb.EJB;
@@ -13,6 +16,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
+import util.JsonStreaming;
 
 import java.net.URI;
 import java.util.List;
@@ -27,6 +31,8 @@ public class PostResource {
 
     @EJB
     private PostService postService;
+    @EJB
+    private LikeBuffer likeBuffer;
     @PersistenceContext
     private EntityManager em;
 
@@ -55,13 +61,57 @@ public class PostResource {
 
     @GET
     @Path("/feed")
-    public Response feed(@QueryParam("userId") Long userId) {
+    @Produces({MediaType.APPLICATION_JSON, JsonStreaming.NDJSON})
+    public Response feed(@QueryParam("userId") Long userId,
+                         @QueryParam("cursor") String cursor,
+                         @QueryParam("limit") @DefaultValue("" + PostService.DEFAULT_FEED_PAGE_SIZE) int limit,
+                         @QueryParam("mode") @DefaultValue("chronological") String mode) {
         User user = em.find(User.class, userId);
         if (user == null)
             return Response.status(Response.Status.NOT_FOUND).entity("User not found.").build();
 
-        List<PostDTO> feed = postService.getFeed(userId);
-        return Response.ok(feed).build();
+        if ("ranked".equals(mode)) {
+            // ranked pages are addressed by offset into the ranked window
+            int offset;
+            try {
+                offset = cursor == null || cursor.isBlank() ? 0 : Integer.parseInt(cursor);
+            } catch (NumberFormatException e) {
+                offset = -1;
+            }
+            if (offset < 0)
+                return Response.status(Response.Status.BAD_REQUEST).entity("Invalid feed cursor").build();
+            return feedResponse(postService.getRankedFeed(userId, offset, limit));
+        }
+        if (!"chronological".equals(mode))
+            return Response.status(Response.Status.BAD_REQUEST).entity("Unknown feed mode: " + mode).build();
+
+        FeedCursor before;
+        try {
+            before = FeedCursor.parse(cursor);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+
+        FeedPageDTO feed = postService.getFeed(userId, before, limit);
+        return feedResponse(feed);
+    }
+
+    @Context private HttpHeaders headers;
+
+    /**
+     * The page as one JSON object, or, for clients accepting NDJSON, one post per line
+     * with the next cursor in the {@code X-Next-Cursor} header.
+     */
+    private Response feedResponse(FeedPageDTO feed) {
+        if (!JsonStreaming.wantsNdjson(headers)) {
+            return Response.ok(feed, MediaType.APPLICATION_JSON).build();
+        }
+        Response.ResponseBuilder response = Response.ok(
+                JsonStreaming.body(feed.getPosts()::forEach, true), JsonStreaming.NDJSON);
+        if (feed.getNextCursor() != null) {
+            response.header("X-Next-Cursor", feed.getNextCursor());
+        }
+        return response.build();
     }
 
 
@@ -155,7 +205,14 @@ public class PostResource {
         User me = getCurrentUser();
         return postService.listPosts(groupId, me)
                 .stream()
-                .map(this::mapToDTO)
+                .map(p -> {
+                    PostDTO dto = mapToDTO(p);
+                    // the reader's own like may still be on its way to the counter
+                    if (likeBuffer.isPending(p.getId(), me.getId())) {
+                        dto.setLikesCount(dto.getLikesCount() + 1);
+                    }
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
 
@@ -171,6 +228,8 @@ public class PostResource {
         dto.setLink(p.getLink());
         dto.setImageUrl(p.getImageUrl());
         dto.setCreatedAt(p.getCreatedAt());
+        dto.setLikesCount(p.getLikeCount() == null ? 0 : p.getLikeCount());
+        dto.setCommentCount(p.getCommentCount() == null ? 0 : p.getCommentCount());
         return dto;
     }
 
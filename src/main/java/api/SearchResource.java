@@ -0,0 +1,34 @@
+package api;
+
+import Services.UserServices.TypeaheadIndex;
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * As-you-type search across people and groups, answered from memory.
+ */
+@Path("/search")
+@Produces(MediaType.APPLICATION_JSON)
+public class SearchResource {
+
+    @EJB
+    private TypeaheadIndex typeahead;
+
+    @GET
+    @Path("/typeahead")
+    public Response typeahead(@QueryParam("q") String q,
+                              @QueryParam("limit") @DefaultValue("" + TypeaheadIndex.DEFAULT_RESULTS) int limit) {
+        if (q == null || q.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Query must not be empty.")
+                    .build();
+        }
+        return Response.ok(typeahead.suggest(q, limit)).build();
+    }
+}
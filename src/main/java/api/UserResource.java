@@ -7,10 +7,9 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import util.JsonStreaming;
 import util.JwtUtil;
 
-import java.util.List;
-
 @Path("/users")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
@@ -36,11 +35,27 @@ public class UserResource {
                     .build();
         }
     }
+
+    /** One page of users; pass the previous page's {@code nextCursor} as {@code cursor}. */
     @GET
     @Path("/all")
-    public Response getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return Response.ok(users).build();
+    public Response getAllUsers(@QueryParam("cursor") String cursor,
+                                @QueryParam("limit") @DefaultValue("" + UserService.DEFAULT_PAGE_SIZE) int limit) {
+        Long afterId;
+        try {
+            afterId = cursor == null || cursor.isBlank() ? null : Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid cursor").build();
+        }
+        return Response.ok(userService.listUsers(afterId, limit)).build();
+    }
+
+    /** Every user as NDJSON, for admin tooling; streamed, so any number of users is safe. */
+    @GET
+    @Path("/export")
+    @Produces(JsonStreaming.NDJSON)
+    public Response exportUsers() {
+        return Response.ok(JsonStreaming.body(userService::streamAllUsers, true), JsonStreaming.NDJSON).build();
     }
 
 
@@ -0,0 +1,37 @@
+package app.DTO;
+
+import notificationModule.ActivityLog;
+
+import java.util.List;
+
+/**
+ * One page of activity log entries, newest first. {@code nextCursor} is null on the last page.
+ */
+public class ActivityLogPageDTO {
+    private List<ActivityLog> logs;
+    private String nextCursor;
+
+    public ActivityLogPageDTO() {
+    }
+
+    public ActivityLogPageDTO(List<ActivityLog> logs, String nextCursor) {
+        this.logs = logs;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ActivityLog> getLogs() {
+        return logs;
+    }
+
+    public void setLogs(List<ActivityLog> logs) {
+        this.logs = logs;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,35 @@
+package app.DTO;
+
+import java.util.List;
+
+/**
+ * One page of a feed. {@code nextCursor} is null on the last page.
+ */
+public class FeedPageDTO {
+    private List<PostDTO> posts;
+    private String nextCursor;
+
+    public FeedPageDTO() {
+    }
+
+    public FeedPageDTO(List<PostDTO> posts, String nextCursor) {
+        this.posts = posts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PostDTO> getPosts() {
+        return posts;
+    }
+
+    public void setPosts(List<PostDTO> posts) {
+        this.posts = posts;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,54 @@
+package app.DTO;
+
+/**
+ * A suggested friend with the evidence behind it. {@code score} is the Adamic-Adar score:
+ * the sum, over mutual friends, of 1 / ln(that friend's friend count), so friends with
+ * small networks count for more.
+ */
+public class FriendSuggestionDTO {
+    private Long userId;
+    private String name;
+    private int mutualFriends;
+    private double score;
+
+    public FriendSuggestionDTO() {
+    }
+
+    public FriendSuggestionDTO(Long userId, int mutualFriends, double score) {
+        this.userId = userId;
+        this.mutualFriends = mutualFriends;
+        this.score = score;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getMutualFriends() {
+        return mutualFriends;
+    }
+
+    public void setMutualFriends(int mutualFriends) {
+        this.mutualFriends = mutualFriends;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+}
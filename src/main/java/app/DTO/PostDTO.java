@@ -22,6 +22,7 @@ public class PostDTO {
     private String authorUsername;
     private List<String> commentContents;
     private int likesCount;
+    private int commentCount;
 
 
 
@@ -29,6 +30,21 @@ public class PostDTO {
 
     }
 
+    /** Used by the feed's JPQL constructor expression. */
+    public PostDTO(Long id, Long authorId, String authorUsername, String content,
+                   String imageUrl, String link, LocalDateTime createdAt,
+                   Integer likesCount, Integer commentCount) {
+        this.id = id;
+        this.authorId = authorId;
+        this.authorUsername = authorUsername;
+        this.content = content;
+        this.imageUrl = imageUrl;
+        this.link = link;
+        this.createdAt = createdAt;
+        this.likesCount = likesCount;
+        this.commentCount = commentCount;
+    }
+
     public Long getId() {
         return id;
     }
@@ -93,6 +109,14 @@ public class PostDTO {
         this.likesCount = likesCount;
     }
 
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
+    }
+
     // Constructors, getters, setters
 }
 
@@ -0,0 +1,57 @@
+package app.DTO;
+
+/**
+ * One typeahead suggestion: a user ranked by friend count or a group ranked by member count.
+ */
+public class TypeaheadDTO {
+    public static final String USER = "user";
+    public static final String GROUP = "group";
+
+    private String type;
+    private Long id;
+    private String name;
+    private int popularity;
+
+    public TypeaheadDTO() {
+    }
+
+    public TypeaheadDTO(String type, Long id, String name, int popularity) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.popularity = popularity;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /** friend count for a user, member count for a group */
+    public int getPopularity() {
+        return popularity;
+    }
+
+    public void setPopularity(int popularity) {
+        this.popularity = popularity;
+    }
+}
@@ -0,0 +1,36 @@
+package app.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's notification badge: activity log entries newer than their read cursor, and the
+ * cursor itself (null if they have never marked notifications read).
+ */
+public class UnreadCountDTO {
+    private long unread;
+    private LocalDateTime lastReadAt;
+
+    public UnreadCountDTO() {
+    }
+
+    public UnreadCountDTO(long unread, LocalDateTime lastReadAt) {
+        this.unread = unread;
+        this.lastReadAt = lastReadAt;
+    }
+
+    public long getUnread() {
+        return unread;
+    }
+
+    public void setUnread(long unread) {
+        this.unread = unread;
+    }
+
+    public LocalDateTime getLastReadAt() {
+        return lastReadAt;
+    }
+
+    public void setLastReadAt(LocalDateTime lastReadAt) {
+        this.lastReadAt = lastReadAt;
+    }
+}
@@ -0,0 +1,35 @@
+package app.DTO;
+
+import java.util.List;
+
+/**
+ * One page of the user listing. {@code nextCursor} is null on the last page.
+ */
+public class UserPageDTO {
+    private List<UserSummaryDTO> users;
+    private String nextCursor;
+
+    public UserPageDTO() {
+    }
+
+    public UserPageDTO(List<UserSummaryDTO> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserSummaryDTO> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserSummaryDTO> users) {
+        this.users = users;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
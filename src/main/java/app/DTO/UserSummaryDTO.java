@@ -0,0 +1,35 @@
+package app.DTO;
+
+/**
+ * What lists of users show about each one: id and display name. Used instead of the
+ * {@code User} entity so list endpoints neither load nor serialize the rest of it.
+ */
+public class UserSummaryDTO {
+    private Long id;
+    private String name;
+
+    public UserSummaryDTO() {
+    }
+
+    /** Used by JPQL constructor expressions. */
+    public UserSummaryDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
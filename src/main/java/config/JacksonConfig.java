@@ -10,12 +10,19 @@ import jakarta.ws.rs.ext.Provider;
 @Provider
 public class JacksonConfig implements ContextResolver<ObjectMapper> {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
     private final ObjectMapper objectMapper;
 
     public JacksonConfig() {
-        objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper = MAPPER;
+    }
+
+    /** The application's mapper, for code that writes JSON itself (e.g. streamed responses). */
+    public static ObjectMapper mapper() {
+        return MAPPER;
     }
 
     @Override
@@ -1,22 +1,45 @@
 package notificationModule;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        // per-user listings: equality on userId, then newest-first range scan
+        @Index(name = "idx_activity_user_time", columnList = "userId, timestamp, id"),
+        // listings across all users
+        @Index(name = "idx_activity_time", columnList = "timestamp, id"),
+        // the open coalesced record of a (user, post, action), see NotificationCoalescing
+        @Index(name = "idx_activity_target", columnList = "userId, postId, actionType, timestamp")
+})
 public class ActivityLog {
+
+    /** Ids handed out per sequence call; matches hibernate.jdbc.batch_size. */
+    public static final int ID_ALLOCATION_SIZE = 50;
+    /** Longer details are cut to fit, see ActivityLogBatchWriter. */
+    public static final int MAX_DETAILS_LENGTH = 255;
+
+    // pooled sequence rather than IDENTITY: ids are known before the insert, so inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "activity_log_seq")
+    @SequenceGenerator(name = "activity_log_seq", sequenceName = "activity_log_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private Long userId;
     private String actionType;  // e.g., "POST", "LIKE", "FRIEND_ADDED"
+    @Column(length = MAX_DETAILS_LENGTH)
     private String actionDetails;  // Detailed message
     private LocalDateTime timestamp;
+    private Long postId;  // set for events about a post
+    private Integer actorCount;  // events folded into this entry; null on entries older than coalescing
 
     public Long getId() {
         return id;
@@ -57,5 +80,20 @@ public class ActivityLog {
     public void setTimestamp(LocalDateTime timestamp) {
         this.timestamp = timestamp;
     }
-}
 
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public Integer getActorCount() {
+        return actorCount;
+    }
+
+    public void setActorCount(Integer actorCount) {
+        this.actorCount = actorCount;
+    }
+}
@@ -0,0 +1,271 @@
+package notificationModule;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import config.JacksonConfig;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSConsumer;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Queue;
+import jakarta.jms.TextMessage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Moves notification events from the queue into the activity log a batch at a time.
+ * <p>
+ * Each {@link #drain} call is one JTA transaction covering both the JMS receives and the
+ * inserts: the messages are acknowledged only if the rows commit, and redelivered otherwise.
+ * Coalescable events are folded per {@link NotificationCoalescing#key} before they are written.
+ */
+@Stateless
+public class ActivityLogBatchWriter {
+
+    private static final Logger LOG = Logger.getLogger(ActivityLogBatchWriter.class.getName());
+    private static final ObjectReader EVENT_READER = JacksonConfig.mapper().readerFor(NotificationEvent.class);
+    private static final Comparator<Folded> LOCK_ORDER = Comparator
+            .comparing((Folded group) -> group.latest.getToUserId())
+            .thenComparing(group -> group.latest.getEventType())
+            .thenComparing(group -> group.latest.getPostId());
+
+    @Inject
+    private JMSContext jmsContext;
+
+    @Resource(lookup = "java:/jms/queue/NotificationQueue")
+    private Queue notificationQueue;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private Event<ActivityLogged> activityLogged;
+
+    /**
+     * Wait up to {@code idleMillis} for a first message, then take more until
+     * {@code maxMessages} are in hand or {@code maxWaitMillis} have passed since the first,
+     * and write them in JDBC batches.
+     *
+     * @return the number of messages consumed, 0 if the queue stayed empty
+     */
+    public int drain(int maxMessages, long maxWaitMillis, long idleMillis) {
+        try (JMSConsumer consumer = jmsContext.createConsumer(notificationQueue)) {
+            Message message = consumer.receive(idleMillis);
+            if (message == null) {
+                return 0;
+            }
+            return write(consumer, message, maxMessages, maxWaitMillis);
+        }
+    }
+
+    /**
+     * Write one message in a transaction of its own, to get past a batch that failed. The
+     * ids of messages tried here are added to {@code attempted}; one that comes back failed
+     * on its own, so it is dropped instead of failing again, provided the database answers.
+     *
+     * @return the number of messages consumed, 0 if the queue stayed empty
+     */
+    public int writeOne(long idleMillis, Set<String> attempted) {
+        try (JMSConsumer consumer = jmsContext.createConsumer(notificationQueue)) {
+            Message message = consumer.receive(idleMillis);
+            if (message == null) {
+                return 0;
+            }
+            String id = messageId(message);
+            if (id != null && !attempted.add(id)) {
+                // only drop it if the database is up; during an outage every message fails alone
+                em.createNativeQuery("SELECT 1").getSingleResult();
+                LOG.warning(() -> "activity_log.skip reason=failed_alone id=" + id);
+                return 1;
+            }
+            return write(consumer, message, 1, 0);
+        }
+    }
+
+    private int write(JMSConsumer consumer, Message first, int maxMessages, long maxWaitMillis) {
+        Message message = first;
+        long started = System.currentTimeMillis();
+        long deadline = started + maxWaitMillis;
+        int received = 0;
+        int written = 0;
+        Map<List<Object>, Folded> folded = new LinkedHashMap<>();
+        List<ActivityLog> entries = new ArrayList<>();
+        Map<Long, LocalDateTime> previousTimestamps = new HashMap<>();
+        while (message != null) {
+            received++;
+            NotificationEvent event = read(message);
+            if (event != null && NotificationCoalescing.coalesces(event)) {
+                Folded group = folded.computeIfAbsent(NotificationCoalescing.key(event), key -> new Folded());
+                group.add(event, createdAt(message));
+            } else if (event != null) {
+                ActivityLog entry = toActivityLog(event, event.getActorCount(), createdAt(message));
+                em.persist(entry);
+                entries.add(entry);
+                written++;
+            }
+            long left = deadline - System.currentTimeMillis();
+            if (received == maxMessages || left <= 0) {
+                break;
+            }
+            message = consumer.receive(left);
+        }
+        // lock open entries in one order on every node, so two workers can't deadlock
+        List<Folded> groups = new ArrayList<>(folded.values());
+        groups.sort(LOCK_ORDER);
+        for (Folded group : groups) {
+            ActivityLog entry = foldIntoOpenEntry(group, previousTimestamps);
+            if (entry == null) {
+                entry = toActivityLog(group.latest, group.actors, group.at);
+                em.persist(entry);
+                written++;
+            }
+            entries.add(entry);
+        }
+        em.flush();
+        // pushed to open notification streams once this commits
+        activityLogged.fire(new ActivityLogged(entries, previousTimestamps));
+
+        int messages = received;
+        int inserted = written;
+        LOG.fine(() -> "activity_log.batch messages=" + messages + " inserted=" + inserted
+                + " folded=" + folded.size() + " ms=" + (System.currentTimeMillis() - started));
+        return received;
+    }
+
+    /**
+     * Add a group to the recipient's entry for the same post and action, if one was updated
+     * within {@link NotificationCoalescing#WINDOW}. Every node runs a worker, so the entry is
+     * read with a write lock: a second worker folding into it waits and then adds to the
+     * committed count. Two workers that both find no open entry at the same moment each
+     * insert one; the actors are split over two notifications but none is lost, and later
+     * events fold into the newer entry.
+     *
+     * @return the updated entry, or null if there is none open
+     */
+    private ActivityLog foldIntoOpenEntry(Folded group, Map<Long, LocalDateTime> previousTimestamps) {
+        NotificationEvent latest = group.latest;
+        List<ActivityLog> open = em.createQuery("""
+                        SELECT log FROM ActivityLog log
+                        WHERE log.userId = :userId AND log.postId = :postId AND log.actionType = :actionType
+                          AND log.timestamp >= :since
+                        ORDER BY log.timestamp DESC""", ActivityLog.class)
+                .setParameter("userId", latest.getToUserId())
+                .setParameter("postId", latest.getPostId())
+                .setParameter("actionType", latest.getEventType())
+                .setParameter("since", group.at.minus(NotificationCoalescing.WINDOW))
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(1)
+                .getResultList();
+        if (open.isEmpty()) {
+            return null;
+        }
+        ActivityLog entry = open.get(0);
+        int actors = (entry.getActorCount() == null ? 1 : entry.getActorCount()) + group.actors;
+        previousTimestamps.put(entry.getId(), entry.getTimestamp());
+        entry.setActorCount(actors);
+        entry.setActionDetails(details(NotificationCoalescing.describe(latest, actors)));
+        // events carry their creation time, so a late one can be older than the entry
+        if (group.at.isAfter(entry.getTimestamp())) {
+            entry.setTimestamp(group.at);
+        }
+        return entry;
+    }
+
+    private static ActivityLog toActivityLog(NotificationEvent event, int actors, LocalDateTime at) {
+        ActivityLog log = new ActivityLog();
+        log.setUserId(event.getToUserId());
+        log.setActionType(event.getEventType());
+        log.setActionDetails(details(NotificationCoalescing.describe(event, actors)));
+        log.setPostId(event.getPostId());
+        log.setActorCount(actors);
+        log.setTimestamp(at);
+        return log;
+    }
+
+    /** Cut to the column, so a long group name can't fail the batch it is in. */
+    private static String details(String details) {
+        if (details == null || details.length() <= ActivityLog.MAX_DETAILS_LENGTH) {
+            return details;
+        }
+        return details.substring(0, ActivityLog.MAX_DETAILS_LENGTH - 1) + "\u2026";
+    }
+
+    private static String messageId(Message message) {
+        try {
+            return message.getJMSMessageID();
+        } catch (JMSException e) {
+            return null;
+        }
+    }
+
+    /** The event in a message, or null for one that is not a readable event (it is dropped). */
+    private static NotificationEvent read(Message message) {
+        try {
+            if (message instanceof BytesMessage) {
+                return NotificationCodec.decode(message.getBody(byte[].class));
+            }
+            if (message instanceof TextMessage textMessage) {
+                // JSON, as sent before the binary format
+                return EVENT_READER.readValue(textMessage.getText());
+            }
+            LOG.warning(() -> "activity_log.skip reason=unknown_message type=" + message.getClass().getSimpleName());
+            return null;
+        } catch (IOException | JMSException | IllegalArgumentException e) {
+            LOG.log(Level.WARNING, "activity_log.skip reason=unreadable", e);
+            return null;
+        }
+    }
+
+    /** Coalescable events of one batch with the same key. */
+    private static final class Folded {
+        NotificationEvent latest;
+        int actors;
+        LocalDateTime at;
+
+        void add(NotificationEvent event, LocalDateTime createdAt) {
+            latest = event;
+            actors += event.getActorCount();
+            // relays on different nodes can deliver slightly out of order
+            if (at == null || createdAt.isAfter(at)) {
+                at = createdAt;
+            }
+        }
+    }
+
+    /**
+     * When the event happened, as the outbox recorded it, not when a backed-up relay or queue
+     * got round to it. Messages sent before the outbox carried it fall back to the send time.
+     */
+    private static LocalDateTime createdAt(Message message) {
+        try {
+            long at = message.propertyExists(NotificationOutbox.CREATED_AT)
+                    ? message.getLongProperty(NotificationOutbox.CREATED_AT)
+                    : message.getJMSTimestamp();
+            if (at > 0) {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(at), ZoneId.systemDefault());
+            }
+        } catch (JMSException e) {
+            // fall through to the time it was received
+        }
+        return LocalDateTime.now();
+    }
+}
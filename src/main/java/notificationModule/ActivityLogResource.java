@@ -1,12 +1,19 @@
 package notificationModule;
 
+import app.DTO.ActivityLogPageDTO;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import util.JsonStreaming;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 
+/**
+ * Activity log listings, newest first. {@code since} (inclusive) and {@code until} (exclusive)
+ * are ISO local date-times; {@code cursor} is the previous page's {@code nextCursor}.
+ */
 @Path("/activity-logs")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
@@ -17,25 +24,72 @@ public class ActivityLogResource {
 
     @GET
     @Path("/user/{userId}")
-    public Response getUserActivityLogs(@PathParam("userId") Long userId) {
-        List<ActivityLog> logs = activityLogService.getActivityLogsByUser(userId);
-        if (logs.isEmpty()) {
+    public Response getUserActivityLogs(@PathParam("userId") Long userId,
+                                        @QueryParam("since") String since,
+                                        @QueryParam("until") String until,
+                                        @QueryParam("cursor") String cursor,
+                                        @QueryParam("limit") @DefaultValue("" + ActivityLogService.DEFAULT_PAGE_SIZE) int limit) {
+        ActivityLogPageDTO page;
+        try {
+            page = activityLogService.getActivityLogsByUser(userId, parseTime(since), parseTime(until),
+                    ActivityLogCursor.parse(cursor), limit);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        if (page.getLogs().isEmpty() && cursor == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("No activity logs found for this user.")
                     .build();
         }
-        return Response.ok(logs).build();
+        return Response.ok(page).build();
     }
 
     @GET
     @Path("/all")
-    public Response getAllActivityLogs() {
-        List<ActivityLog> logs = activityLogService.getAllActivityLogs();
-        if (logs.isEmpty()) {
+    public Response getAllActivityLogs(@QueryParam("since") String since,
+                                       @QueryParam("until") String until,
+                                       @QueryParam("cursor") String cursor,
+                                       @QueryParam("limit") @DefaultValue("" + ActivityLogService.DEFAULT_PAGE_SIZE) int limit) {
+        ActivityLogPageDTO page;
+        try {
+            page = activityLogService.getAllActivityLogs(parseTime(since), parseTime(until),
+                    ActivityLogCursor.parse(cursor), limit);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        if (page.getLogs().isEmpty() && cursor == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("No activity logs found.")
                     .build();
         }
-        return Response.ok(logs).build();
+        return Response.ok(page).build();
+    }
+
+    // Streamed: the whole table (or a wide window of it) is far too big to load as a list
+    @GET
+    @Path("/export")
+    @Produces(JsonStreaming.NDJSON)
+    public Response exportActivityLogs(@QueryParam("since") String since, @QueryParam("until") String until) {
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            from = parseTime(since);
+            to = parseTime(until);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        return Response.ok(JsonStreaming.body(
+                sink -> activityLogService.streamActivityLogs(from, to, sink), true), JsonStreaming.NDJSON).build();
+    }
+
+    static LocalDateTime parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date-time: " + value);
+        }
     }
 }
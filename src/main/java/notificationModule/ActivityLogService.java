@@ -1,26 +1,184 @@
 package notificationModule;
 
+import app.DTO.ActivityLogPageDTO;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
+import util.ResultStreams;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
 @Stateless
 public class ActivityLogService {
 
+    /** Entries per page when the client does not ask for a number. */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
     @PersistenceContext
     private EntityManager em;
 
-    // Get activity logs for a specific user
-    public List<ActivityLog> getActivityLogsByUser(Long userId) {
-        return em.createQuery("SELECT log FROM ActivityLog log WHERE log.userId = :userId ORDER BY log.timestamp DESC", ActivityLog.class)
+    /**
+     * One page of a user's activity, newest first, optionally limited to
+     * {@code since <= timestamp < until}. Served by a range scan on
+     * {@code idx_activity_user_time}, so the cost follows the page size, not the history.
+     */
+    public ActivityLogPageDTO getActivityLogsByUser(Long userId, LocalDateTime since, LocalDateTime until,
+                                                    ActivityLogCursor cursor, int limit) {
+        return page("log.userId = :userId", since, until, cursor, limit, query -> query.setParameter("userId", userId));
+    }
+
+    /** Same as {@link #getActivityLogsByUser} across all users, on {@code idx_activity_time}. */
+    public ActivityLogPageDTO getAllActivityLogs(LocalDateTime since, LocalDateTime until,
+                                                 ActivityLogCursor cursor, int limit) {
+        return page(null, since, until, cursor, limit, query -> { });
+    }
+
+    // Stream activity logs in the window, newest first, one row at a time
+    public void streamActivityLogs(LocalDateTime since, LocalDateTime until, Consumer<? super ActivityLog> sink) {
+        TypedQuery<ActivityLog> query = em.createQuery(
+                "SELECT log FROM ActivityLog log" + where(null, since, until, null)
+                        + " ORDER BY log.timestamp DESC, log.id DESC", ActivityLog.class);
+        bind(query, since, until, null);
+        ResultStreams.forEach(em, query, sink);
+    }
+
+    /**
+     * Move the id sequence past ids already in the table, e.g. rows written while ids
+     * were IDENTITY columns. A no-op once the sequence is ahead.
+     */
+    public void alignIdSequence() {
+        long maxId = ((Number) em.createNativeQuery("SELECT COALESCE(MAX(id), 0) FROM ActivityLog")
+                .getSingleResult()).longValue();
+        long next = ((Number) em.createNativeQuery("SELECT NEXT VALUE FOR activity_log_seq")
+                .getSingleResult()).longValue();
+        // the pooled optimizer hands out the ID_ALLOCATION_SIZE ids ending at each sequence value
+        if (next - ActivityLog.ID_ALLOCATION_SIZE < maxId) {
+            // spaced to the sequence alone, which no cache region or cached query reads
+            em.createNativeQuery("ALTER SEQUENCE activity_log_seq RESTART WITH "
+                            + (maxId + 1 + ActivityLog.ID_ALLOCATION_SIZE))
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace("activity_log_seq")
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Give every user with activity an unread count of all their entries, for logs written
+     * before read state was kept. Runs only while the read state table is empty.
+     */
+    public void rebuildReadStatesIfEmpty() {
+        boolean empty = em.createNativeQuery("SELECT 1 FROM notification_read_state")
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+        if (!empty) {
+            return;
+        }
+        em.createNativeQuery("""
+                INSERT INTO notification_read_state (userId, lastReadAt, unreadCount)
+                SELECT userId, NULL, COUNT(*) FROM ActivityLog
+                WHERE userId IS NOT NULL
+                GROUP BY userId
+                """)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(NotificationReadState.class)
+                .executeUpdate();
+    }
+
+    /** Stored read states of the given users; users without one are absent from the map. */
+    public Map<Long, NotificationReadState> readStates(Collection<Long> userIds) {
+        Map<Long, NotificationReadState> out = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return out;
+        }
+        em.createQuery("SELECT s FROM NotificationReadState s WHERE s.userId IN :ids", NotificationReadState.class)
+                .setParameter("ids", userIds)
+                .getResultList()
+                .forEach(state -> out.put(state.getUserId(), state));
+        return out;
+    }
+
+    /** Insert or update read states, in one transaction and JDBC batches; see {@link UnreadCounters#flush}. */
+    public void writeReadStates(List<NotificationReadState> states) {
+        Map<Long, NotificationReadState> rows = readStates(
+                states.stream().map(NotificationReadState::getUserId).collect(Collectors.toList()));
+        for (NotificationReadState state : states) {
+            NotificationReadState row = rows.get(state.getUserId());
+            if (row == null) {
+                em.persist(state);
+            } else {
+                row.setLastReadAt(state.getLastReadAt());
+                row.setUnreadCount(state.getUnreadCount());
+            }
+        }
+        em.flush();
+    }
+
+    /** Entries of a user newer than {@code after}; a short range scan on {@code idx_activity_user_time}. */
+    public long countNewerThan(Long userId, LocalDateTime after) {
+        return em.createQuery(
+                        "SELECT COUNT(log) FROM ActivityLog log WHERE log.userId = :userId AND log.timestamp > :after",
+                        Long.class)
                 .setParameter("userId", userId)
-                .getResultList();
+                .setParameter("after", after)
+                .getSingleResult();
+    }
+
+    private ActivityLogPageDTO page(String filter, LocalDateTime since, LocalDateTime until,
+                                    ActivityLogCursor cursor, int limit, Consumer<TypedQuery<ActivityLog>> filterParameters) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        TypedQuery<ActivityLog> query = em.createQuery(
+                "SELECT log FROM ActivityLog log" + where(filter, since, until, cursor)
+                        + " ORDER BY log.timestamp DESC, log.id DESC", ActivityLog.class);
+        filterParameters.accept(query);
+        bind(query, since, until, cursor);
+        List<ActivityLog> logs = query.setMaxResults(size + 1).getResultList();
+        if (logs.size() <= size) {
+            return new ActivityLogPageDTO(logs, null);
+        }
+        logs = new ArrayList<>(logs.subList(0, size));
+        ActivityLog last = logs.get(size - 1);
+        return new ActivityLogPageDTO(logs, new ActivityLogCursor(last.getTimestamp(), last.getId()).encode());
+    }
+
+    private static String where(String filter, LocalDateTime since, LocalDateTime until, ActivityLogCursor cursor) {
+        List<String> conditions = new ArrayList<>();
+        if (filter != null) {
+            conditions.add(filter);
+        }
+        if (since != null) {
+            conditions.add("log.timestamp >= :since");
+        }
+        if (until != null) {
+            conditions.add("log.timestamp < :until");
+        }
+        if (cursor != null) {
+            conditions.add("(log.timestamp, log.id) < (:cursorTimestamp, :cursorId)");
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
     }
 
-    // Get all activity logs
-    public List<ActivityLog> getAllActivityLogs() {
-        return em.createQuery("SELECT log FROM ActivityLog log ORDER BY log.timestamp DESC", ActivityLog.class)
-                .getResultList();
+    private static void bind(TypedQuery<ActivityLog> query, LocalDateTime since, LocalDateTime until,
+                             ActivityLogCursor cursor) {
+        if (since != null) {
+            query.setParameter("since", since);
+        }
+        if (until != null) {
+            query.setParameter("until", until);
+        }
+        if (cursor != null) {
+            query.setParameter("cursorTimestamp", cursor.getTimestamp())
+                    .setParameter("cursorId", cursor.getId());
+        }
     }
 }
@@ -0,0 +1,30 @@
+package notificationModule;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Activity log entries written or updated by one consumer batch, fired inside its
+ * transaction; observe with {@code TransactionPhase.AFTER_SUCCESS}.
+ */
+public class ActivityLogged {
+
+    private final List<ActivityLog> entries;
+    /** entry id to its timestamp before this batch, for entries the batch updated */
+    private final Map<Long, LocalDateTime> previousTimestamps;
+
+    public ActivityLogged(List<ActivityLog> entries, Map<Long, LocalDateTime> previousTimestamps) {
+        this.entries = entries;
+        this.previousTimestamps = previousTimestamps;
+    }
+
+    public List<ActivityLog> getEntries() {
+        return entries;
+    }
+
+    /** When an updated entry was last touched before this batch; null for a new entry. */
+    public LocalDateTime getPreviousTimestamp(ActivityLog entry) {
+        return previousTimestamps.get(entry.getId());
+    }
+}
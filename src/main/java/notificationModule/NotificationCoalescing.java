@@ -0,0 +1,53 @@
+package notificationModule;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which notification events are folded together, and how a folded one reads.
+ * <p>
+ * Events with the same {@link #key} (recipient, type, post) are merged twice: by
+ * {@link NotificationOutbox} before they reach the queue, and by
+ * {@link ActivityLogBatchWriter} into the recipient's open activity log entry, so a viral
+ * post leaves one "X and 342 others liked your post." entry instead of 343.
+ */
+final class NotificationCoalescing {
+
+    /** Types where each actor sends at most one event per post, so folded counts are actors. */
+    static final Set<String> EVENT_TYPES = Set.of("LIKE");
+    /** Events join an activity log entry updated less than this long ago; after a lull a new one starts. */
+    static final Duration WINDOW = Duration.ofHours(1);
+
+    private NotificationCoalescing() {
+    }
+
+    static boolean coalesces(NotificationEvent event) {
+        return EVENT_TYPES.contains(event.getEventType())
+                && event.getToUserId() != null && event.getPostId() != null;
+    }
+
+    static List<Object> key(NotificationEvent event) {
+        return List.of(event.getToUserId(), event.getEventType(), event.getPostId());
+    }
+
+    /** Fold an earlier event into a later one with the same key; returns the later one. */
+    static NotificationEvent merge(NotificationEvent earlier, NotificationEvent later) {
+        later.setActorCount(earlier.getActorCount() + later.getActorCount());
+        return later;
+    }
+
+    /**
+     * The latest event's message with its actor widened to the whole group, e.g.
+     * "Ann liked your post." for 3 actors becomes "Ann and 2 others liked your post.".
+     */
+    static String describe(NotificationEvent latest, int actors) {
+        String message = latest.getMessage();
+        String name = latest.getActorName();
+        if (actors <= 1 || message == null || name == null || !message.startsWith(name)) {
+            return message;
+        }
+        int others = actors - 1;
+        return name + " and " + others + (others == 1 ? " other" : " others") + message.substring(name.length());
+    }
+}
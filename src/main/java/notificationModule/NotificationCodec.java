@@ -0,0 +1,184 @@
+package notificationModule;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Binary wire format of {@link NotificationEvent}, sent as the body of a JMS BytesMessage.
+ * <p>
+ * Version 1 layout: a version byte, the {@link NotificationType} code (0 for a type without
+ * one, whose name then follows as a string), a byte of flags saying which optional fields
+ * are present, then those fields in order: fromUserId, toUserId, postId and actorCount (when
+ * above 1) as unsigned LEB128 varints, actorName and message as varint-length UTF-8. The
+ * message is left out when it is the type's standard text, which the reader renders on demand.
+ * A typical event is under 30 bytes against over 150 as JSON, see NotificationCodecBenchmark.
+ */
+public final class NotificationCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int HAS_FROM = 1;
+    private static final int HAS_TO = 1 << 1;
+    private static final int HAS_POST = 1 << 2;
+    private static final int HAS_ACTOR_COUNT = 1 << 3;
+    private static final int HAS_ACTOR_NAME = 1 << 4;
+    private static final int HAS_MESSAGE = 1 << 5;
+
+    private NotificationCodec() {
+    }
+
+    public static byte[] encode(NotificationEvent event) {
+        NotificationType type = NotificationType.of(event.getEventType());
+        String message = event.getMessage();
+        boolean customMessage = message != null
+                && !Objects.equals(message, NotificationType.render(event.getEventType(), event.getActorName()));
+        int flags = (event.getFromUserId() != null ? HAS_FROM : 0)
+                | (event.getToUserId() != null ? HAS_TO : 0)
+                | (event.getPostId() != null ? HAS_POST : 0)
+                | (event.getActorCount() > 1 ? HAS_ACTOR_COUNT : 0)
+                | (event.getActorName() != null ? HAS_ACTOR_NAME : 0)
+                | (customMessage ? HAS_MESSAGE : 0);
+
+        Writer out = new Writer();
+        out.writeByte(VERSION);
+        out.writeByte(type == null ? 0 : type.code);
+        out.writeByte(flags);
+        if (type == null) {
+            out.writeString(event.getEventType());
+        }
+        if ((flags & HAS_FROM) != 0) {
+            out.writeVarLong(event.getFromUserId());
+        }
+        if ((flags & HAS_TO) != 0) {
+            out.writeVarLong(event.getToUserId());
+        }
+        if ((flags & HAS_POST) != 0) {
+            out.writeVarLong(event.getPostId());
+        }
+        if ((flags & HAS_ACTOR_COUNT) != 0) {
+            out.writeVarLong(event.getActorCount());
+        }
+        if ((flags & HAS_ACTOR_NAME) != 0) {
+            out.writeString(event.getActorName());
+        }
+        if ((flags & HAS_MESSAGE) != 0) {
+            out.writeString(message);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not an event in a version this reader knows
+     */
+    public static NotificationEvent decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown notification format version " + version);
+        }
+        int code = in.readByte();
+        int flags = in.readByte();
+        NotificationEvent event = new NotificationEvent();
+        if (code == 0) {
+            event.setEventType(in.readString());
+        } else {
+            NotificationType type = NotificationType.byCode(code);
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown notification type code " + code);
+            }
+            event.setEventType(type.name());
+        }
+        if ((flags & HAS_FROM) != 0) {
+            event.setFromUserId(in.readVarLong());
+        }
+        if ((flags & HAS_TO) != 0) {
+            event.setToUserId(in.readVarLong());
+        }
+        if ((flags & HAS_POST) != 0) {
+            event.setPostId(in.readVarLong());
+        }
+        if ((flags & HAS_ACTOR_COUNT) != 0) {
+            event.setActorCount((int) in.readVarLong());
+        }
+        if ((flags & HAS_ACTOR_NAME) != 0) {
+            event.setActorName(in.readString());
+        }
+        if ((flags & HAS_MESSAGE) != 0) {
+            event.setMessage(in.readString());
+        }
+        return event;
+    }
+
+    private static final class Writer {
+        private byte[] buf = new byte[32];
+        private int size;
+
+        void writeByte(int b) {
+            if (size == buf.length) {
+                buf = Arrays.copyOf(buf, size * 2);
+            }
+            buf[size++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            if (size + utf8.length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + utf8.length));
+            }
+            System.arraycopy(utf8, 0, buf, size, utf8.length);
+            size += utf8.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readByte() {
+            if (pos == buf.length) {
+                throw new IllegalArgumentException("Truncated notification");
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        String readString() {
+            long length = readVarLong();
+            if (length < 0 || length > buf.length - pos) {
+                throw new IllegalArgumentException("Truncated notification");
+            }
+            String value = new String(buf, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            return value;
+        }
+    }
+}
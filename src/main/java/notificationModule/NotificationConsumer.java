@@ -1,55 +1,98 @@
 package notificationModule;
 
-import jakarta.ejb.ActivationConfigProperty;
-import jakarta.ejb.MessageDriven;
-import jakarta.jms.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-
-import java.time.LocalDateTime;
-
-@MessageDriven(
-        activationConfig = {
-                @ActivationConfigProperty(propertyName = "destinationLookup", propertyValue = "java:/jms/queue/NotificationQueue"),
-                @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "jakarta.jms.Queue")
-        }
-)
-public class NotificationConsumer implements MessageListener {
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Consumes the notification queue into the activity log in batches rather than one
+ * message per transaction: a single worker loop asks {@link ActivityLogBatchWriter} to drain
+ * up to {@link #BATCH_SIZE} messages, or whatever arrives within {@link #BATCH_WAIT_MILLIS}
+ * of the first, and insert them together. When a batch fails, its messages are retried one
+ * per transaction so a single bad message can't hold back the rest.
+ */
+@Singleton
+@Startup
+@DependsOn("DataBootstrap")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationConsumer {
+
+    /** Messages written per transaction at most. */
+    public static final int BATCH_SIZE = 500;
+    /** How long a batch waits to fill once its first message is in. */
+    public static final long BATCH_WAIT_MILLIS = 100;
+    /** Receive timeout on an empty queue; bounds how long shutdown waits for the worker. */
+    private static final long IDLE_POLL_MILLIS = 1000;
+    /** Pause after a failed batch, whose messages go back to the queue for redelivery. */
+    private static final long FAILURE_BACKOFF_MILLIS = 1000;
 
-    @PersistenceContext
-    private EntityManager em;
+    private static final Logger LOG = Logger.getLogger(NotificationConsumer.class.getName());
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @EJB
+    private ActivityLogBatchWriter writer;
 
-    @Override
-    public void onMessage(Message message) {
-        try {
-            if (message instanceof TextMessage textMessage) {
-                String json = textMessage.getText();
-                NotificationEvent event = objectMapper.readValue(json, NotificationEvent.class);
-                System.out.println("New Event Received:");
-                System.out.println("Event Type: " + event.getEventType());
-                System.out.println("Message: " + event.getMessage());
+    @Resource
+    private ManagedExecutorService executor;
 
-                // Log the Notification Event in the database
-                ActivityLog log = new ActivityLog();
-                log.setUserId(event.getToUserId());
-                log.setActionType(event.getEventType());
-                log.setActionDetails(event.getMessage());
-                log.setTimestamp(LocalDateTime.now());
+    private volatile boolean running;
+    private Future<?> worker;
 
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = executor.submit(this::consume);
+    }
 
-                // Persist the log
-                em.persist(log);
+    @PreDestroy
+    void stop() {
+        running = false;
+        worker.cancel(false);
+    }
 
-                // Optionally, print the log for debugging purposes
-                System.out.println("Logged Event: " + log);
+    private void consume() {
+        // after a failed batch, its messages are written one transaction each, so only
+        // the one that makes it fail is lost, see ActivityLogBatchWriter#writeOne
+        int isolateLeft = 0;
+        Set<String> attempted = new HashSet<>();
+        while (running) {
+            try {
+                if (isolateLeft > 0) {
+                    int consumed = writer.writeOne(IDLE_POLL_MILLIS, attempted);
+                    isolateLeft = consumed == 0 ? 0 : isolateLeft - consumed;
+                } else {
+                    writer.drain(BATCH_SIZE, BATCH_WAIT_MILLIS, IDLE_POLL_MILLIS);
+                }
+                if (isolateLeft == 0) {
+                    attempted.clear();
+                }
+            } catch (RuntimeException e) {
+                if (isolateLeft > 0) {
+                    // the message goes back to the queue and is dropped when writeOne sees it again
+                    LOG.log(Level.WARNING, "activity_log.message_failed", e);
+                } else {
+                    LOG.log(Level.WARNING, "activity_log.batch_failed", e);
+                    isolateLeft = BATCH_SIZE;
+                }
+                try {
+                    Thread.sleep(FAILURE_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
 }
-
-
@@ -7,8 +7,9 @@ public class NotificationEvent implements Serializable {
     private Long fromUserId;
     private Long toUserId;
     private Long postId;          // optional
-    private String message;
-
+    private String message;       // rendered from eventType and actorName when not set
+    private String actorName;     // optional, lets coalesced events read "X and N others ..."
+    private int actorCount = 1;   // events folded into this one, see NotificationCoalescing
 
     public String getEventType() {
         return eventType;
@@ -43,6 +44,9 @@ public class NotificationEvent implements Serializable {
     }
 
     public String getMessage() {
+        if (message == null) {
+            message = NotificationType.render(eventType, actorName);
+        }
         return message;
     }
 
@@ -50,5 +54,21 @@ public class NotificationEvent implements Serializable {
         this.message = message;
     }
 
+    public String getActorName() {
+        return actorName;
+    }
+
+    public void setActorName(String actorName) {
+        this.actorName = actorName;
+    }
+
+    public int getActorCount() {
+        return actorCount;
+    }
+
+    public void setActorCount(int actorCount) {
+        this.actorCount = actorCount;
+    }
+
 
 }
\ No newline at end of file
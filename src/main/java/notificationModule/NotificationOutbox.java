@@ -0,0 +1,115 @@
+package notificationModule;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSProducer;
+import jakarta.jms.Queue;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The notification outbox table and the batches that move it onto the queue.
+ * <p>
+ * Each {@link #relay} call is one JTA transaction: the JMS context joins it, so the sends
+ * and the deletion of their rows commit together, and a failed batch is retried whole.
+ * Rows are locked as they are read, skipping rows another node's relay holds, so every
+ * node can run the relay without sending a row twice. Where the database has no SKIP LOCKED,
+ * as with H2, a second relay waits for the first instead.
+ */
+@Stateless
+public class NotificationOutbox {
+
+    /**
+     * Long message property: when the event happened, in epoch millis. The JMS timestamp is
+     * when the relay sent it, which can be much later after an outage.
+     */
+    public static final String CREATED_AT = "createdAt";
+
+    private static final String LOCK_TIMEOUT = "jakarta.persistence.lock.timeout";
+    /** Lock timeout value meaning SELECT ... FOR UPDATE SKIP LOCKED. */
+    private static final int SKIP_LOCKED = -2;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private JMSContext jmsContext;
+
+    @Resource(lookup = "java:/jms/queue/NotificationQueue")
+    private Queue notificationQueue;
+
+    /**
+     * Send the oldest {@code max} outbox rows and delete them. Coalescable events among them
+     * are sent as one event per {@link NotificationCoalescing#key}, stamped with the
+     * creation time of the newest row folded into it.
+     */
+    public RelayedBatch relay(int max) {
+        List<OutboxMessage> rows = em.createQuery(
+                        "SELECT m FROM OutboxMessage m ORDER BY m.id", OutboxMessage.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(LOCK_TIMEOUT, SKIP_LOCKED)
+                .setMaxResults(max)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return new RelayedBatch(0, 0);
+        }
+
+        // events keep their outbox order; folded ones sit where their key first appeared
+        Map<Object, NotificationEvent> events = new LinkedHashMap<>();
+        Map<Object, LocalDateTime> createdAt = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (OutboxMessage row : rows) {
+            NotificationEvent event = row.toEvent();
+            Object key = NotificationCoalescing.coalesces(event) ? NotificationCoalescing.key(event) : row.getId();
+            events.merge(key, event, NotificationCoalescing::merge);
+            LocalDateTime at = row.getCreatedAt() == null ? LocalDateTime.now() : row.getCreatedAt();
+            createdAt.merge(key, at, (a, b) -> a.isAfter(b) ? a : b);
+            ids.add(row.getId());
+        }
+
+        JMSProducer producer = jmsContext.createProducer();
+        for (Map.Entry<Object, NotificationEvent> entry : events.entrySet()) {
+            long at = createdAt.get(entry.getKey()).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            // a BytesMessage in the NotificationCodec format
+            producer.setProperty(CREATED_AT, at)
+                    .send(notificationQueue, NotificationCodec.encode(entry.getValue()));
+        }
+        em.createQuery("DELETE FROM OutboxMessage m WHERE m.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return new RelayedBatch(rows.size(), events.size());
+    }
+
+    public long pending() {
+        return em.createQuery("SELECT COUNT(m) FROM OutboxMessage m", Long.class).getSingleResult();
+    }
+
+    /** Rows taken from the outbox, and the messages they became after coalescing. */
+    public static final class RelayedBatch {
+        private final int rows;
+        private final int messages;
+
+        RelayedBatch(int rows, int messages) {
+            this.rows = rows;
+            this.messages = messages;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getMessages() {
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package notificationModule;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Moves the notification outbox onto the queue every second, in batches of up to
+ * {@link #BATCH_SIZE} rows, until it is empty. Request transactions only insert outbox
+ * rows; this is the one place that talks to JMS.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationOutboxRelay {
+
+    /** Outbox rows sent per transaction at most. */
+    public static final int BATCH_SIZE = 1000;
+
+    private static final Logger LOG = Logger.getLogger(NotificationOutboxRelay.class.getName());
+
+    @EJB
+    private NotificationOutbox outbox;
+
+    /** a run that outlasts the interval keeps going; the next tick skips instead of competing for rows */
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder rowsRelayed = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+
+    // each batch runs in its own transaction, see NotificationOutbox#relay
+    @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void relay() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            NotificationOutbox.RelayedBatch batch;
+            do {
+                batch = outbox.relay(BATCH_SIZE);
+                rowsRelayed.add(batch.getRows());
+                messagesSent.add(batch.getMessages());
+            } while (batch.getRows() == BATCH_SIZE);
+        } catch (RuntimeException e) {
+            // the batch rolled back; its rows are retried on the next tick
+            LOG.log(Level.WARNING, "notification_outbox.relay_failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /** Counters for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("rowsRelayed", rowsRelayed.sum());
+        out.put("messagesSent", messagesSent.sum());
+        out.put("pending", outbox.pending());
+        return out;
+    }
+}
@@ -1,29 +1,22 @@
 package notificationModule;
 
-import jakarta.annotation.Resource;
-import jakarta.inject.Inject;
-import jakarta.jms.*;
 import jakarta.enterprise.context.ApplicationScoped;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
 
+/**
+ * Records notifications in the outbox as part of the caller's transaction, so they are sent
+ * if and only if it commits. {@link NotificationOutboxRelay} puts them on the queue.
+ */
 @ApplicationScoped
 public class NotificationProducer {
 
-    @Inject
-    private JMSContext jmsContext;
-
-    @Resource(lookup = "java:/jms/queue/NotificationQueue")
-    private Queue notificationQueue;
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @PersistenceContext
+    private EntityManager em;
 
+    @Transactional
     public void sendNotification(NotificationEvent event) {
-        try {
-            String json = objectMapper.writeValueAsString(event);
-            TextMessage message = jmsContext.createTextMessage(json);
-            jmsContext.createProducer().send(notificationQueue, message);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        em.persist(new OutboxMessage(event));
     }
 }
@@ -0,0 +1,47 @@
+package notificationModule;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's read cursor over their activity log and the number of entries past it.
+ * Written behind by {@link UnreadCounters}, which serves both from memory.
+ */
+@Entity
+@Table(name = "notification_read_state")
+public class NotificationReadState {
+
+    @Id
+    private Long userId;
+    private LocalDateTime lastReadAt;  // null until the user first marks notifications read
+    private long unreadCount;
+
+    public NotificationReadState() {}
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getLastReadAt() {
+        return lastReadAt;
+    }
+
+    public void setLastReadAt(LocalDateTime lastReadAt) {
+        this.lastReadAt = lastReadAt;
+    }
+
+    public long getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(long unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+}
@@ -0,0 +1,75 @@
+package notificationModule;
+
+import Domain.User;
+import app.DTO.UnreadCountDTO;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * The logged-in user's notifications.
+ * <p>
+ * {@code /stream} is a Server-Sent Events stream: a {@code notification} event per activity
+ * log entry written or updated (same JSON as the activity log listing, event id = entry id),
+ * and an {@code overflow} event with a count when a slow client missed some.
+ * {@code /unread} is the badge count, and {@code /read} moves the read cursor.
+ */
+@Path("/notifications")
+public class NotificationResource {
+
+    @Inject
+    private NotificationStreams streams;
+    @Inject
+    private UnreadCounters unreadCounters;
+    @Context
+    private HttpServletRequest request;
+
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void stream(@Context SseEventSink sink, @Context Sse sse) {
+        streams.subscribe(getCurrentUser().getId(), sink, sse);
+    }
+
+    @GET
+    @Path("/unread")
+    @Produces(MediaType.APPLICATION_JSON)
+    public UnreadCountDTO unread() {
+        return unreadCounters.get(getCurrentUser().getId());
+    }
+
+    /**
+     * Mark notifications read up to {@code until} (ISO local date-time, e.g. the newest entry the
+     * client has shown), or all of them if it is omitted.
+     */
+    @POST
+    @Path("/read")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response markRead(@QueryParam("until") String until) {
+        User me = getCurrentUser();
+        try {
+            return Response.ok(unreadCounters.markRead(me.getId(), ActivityLogResource.parseTime(until))).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    private User getCurrentUser() {
+        HttpSession session = request.getSession(false);
+        if (session == null) throw new NotAuthorizedException("You must log in first");
+        User u = (User) session.getAttribute("currentUser");
+        if (u == null)      throw new NotAuthorizedException("You must log in first");
+        return u;
+    }
+}
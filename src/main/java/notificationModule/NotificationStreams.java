@@ -0,0 +1,108 @@
+package notificationModule;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import config.JacksonConfig;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open notification streams by user, fed with activity log entries as the consumer commits
+ * them, so clients wait on a connection instead of polling the activity log.
+ * <p>
+ * An idle stream costs its {@link NotificationSubscriber} and the container's async request;
+ * no thread waits on it. Entries for users without a stream cost one map lookup.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationStreams {
+
+    /** Streams a user may hold open; opening another closes their oldest. */
+    public static final int MAX_STREAMS_PER_USER = 5;
+
+    private static final ObjectWriter LOG_WRITER = JacksonConfig.mapper().writerFor(ActivityLog.class);
+
+    private final Map<Long, List<NotificationSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final LongAdder pushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public void subscribe(long userId, SseEventSink sink, Sse sse) {
+        NotificationSubscriber subscriber = new NotificationSubscriber(sink, sse);
+        List<NotificationSubscriber> evicted = new ArrayList<>();
+        // inside compute, so the heartbeat cannot drop the user's list while this adds to it
+        subscribers.compute(userId, (id, streams) -> {
+            List<NotificationSubscriber> list = streams != null ? streams : new CopyOnWriteArrayList<>();
+            list.add(subscriber);
+            while (list.size() > MAX_STREAMS_PER_USER) {
+                evicted.add(list.remove(0));
+            }
+            return list;
+        });
+        evicted.forEach(NotificationSubscriber::close);
+        // keeps proxies from timing out the response before the first notification
+        subscriber.ping();
+    }
+
+    public void onActivityLogged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ActivityLogged event) {
+        for (ActivityLog entry : event.getEntries()) {
+            List<NotificationSubscriber> streams = subscribers.get(entry.getUserId());
+            if (streams == null) {
+                continue;
+            }
+            String json = toJson(entry);
+            for (NotificationSubscriber subscriber : streams) {
+                dropped.add(subscriber.offer(entry.getId(), json));
+                pushed.increment();
+            }
+        }
+    }
+
+    /** Keep idle streams open and forget the ones whose client has gone. */
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    public void heartbeat() {
+        for (Long userId : subscribers.keySet()) {
+            subscribers.getOrDefault(userId, List.of()).forEach(NotificationSubscriber::ping);
+            subscribers.computeIfPresent(userId, (id, streams) -> {
+                streams.removeIf(NotificationSubscriber::isClosed);
+                return streams.isEmpty() ? null : streams;
+            });
+        }
+    }
+
+    /** Figures for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        int streams = 0;
+        for (List<NotificationSubscriber> list : subscribers.values()) {
+            streams += list.size();
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("users", subscribers.size());
+        out.put("streams", streams);
+        out.put("entriesPushed", pushed.sum());
+        out.put("entriesDropped", dropped.sum());
+        return out;
+    }
+
+    private static String toJson(ActivityLog entry) {
+        try {
+            return LOG_WRITER.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            // a plain entity of strings, numbers and a date; cannot happen
+            throw new IllegalStateException(e);
+        }
+    }
+}
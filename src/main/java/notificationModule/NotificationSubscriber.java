@@ -0,0 +1,116 @@
+package notificationModule;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * One open notification stream. Sends one event at a time; what arrives meanwhile waits in
+ * a small buffer keyed by activity log id, so repeated updates of a coalesced entry collapse
+ * into its latest state. When the buffer is full the oldest entry is dropped, and the client
+ * is told how many it missed with an {@code overflow} event so it can re-read its log.
+ */
+final class NotificationSubscriber {
+
+    /** Entries waiting per connection at most. */
+    static final int MAX_BUFFERED = 64;
+
+    private final SseEventSink sink;
+    private final Sse sse;
+    /** activity log id to its JSON, oldest first */
+    private final Map<Long, String> buffer = new LinkedHashMap<>();
+    private int dropped;
+    private boolean sending;
+    private boolean closed;
+
+    NotificationSubscriber(SseEventSink sink, Sse sse) {
+        this.sink = sink;
+        this.sse = sse;
+    }
+
+    /** @return how many buffered entries this offer pushed out */
+    synchronized int offer(long logId, String json) {
+        if (closed) {
+            return 0;
+        }
+        int evicted = 0;
+        if (!buffer.containsKey(logId) && buffer.size() == MAX_BUFFERED) {
+            Iterator<Long> oldest = buffer.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+            dropped++;
+            evicted = 1;
+        }
+        buffer.put(logId, json);
+        if (!sending) {
+            sendNext();
+        }
+        return evicted;
+    }
+
+    /** Keep-alive comment on an idle stream; also how a vanished client is noticed. */
+    synchronized void ping() {
+        if (!closed && !sending) {
+            send(sse.newEventBuilder().comment("").build());
+        }
+    }
+
+    synchronized boolean isClosed() {
+        return closed || sink.isClosed();
+    }
+
+    synchronized void close() {
+        closed = true;
+        buffer.clear();
+        sink.close();
+    }
+
+    private void sendNext() {
+        if (dropped > 0) {
+            int missed = dropped;
+            dropped = 0;
+            send(sse.newEventBuilder().name("overflow").data(String.class, String.valueOf(missed)).build());
+            return;
+        }
+        Iterator<Map.Entry<Long, String>> next = buffer.entrySet().iterator();
+        if (!next.hasNext()) {
+            return;
+        }
+        Map.Entry<Long, String> entry = next.next();
+        next.remove();
+        send(sse.newEventBuilder()
+                .name("notification")
+                .id(String.valueOf(entry.getKey()))
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(String.class, entry.getValue())
+                .build());
+    }
+
+    private void send(OutboundSseEvent event) {
+        CompletionStage<?> sent;
+        try {
+            sent = sink.send(event);
+        } catch (IllegalStateException e) {
+            // sink already closed by the client going away
+            close();
+            return;
+        }
+        sending = true;
+        sent.whenComplete((ignored, failure) -> {
+            synchronized (this) {
+                sending = false;
+                if (failure != null) {
+                    close();
+                } else if (!closed) {
+                    sendNext();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package notificationModule;
+
+/**
+ * The notification event types the binary wire format knows: each has a one-byte code, and
+ * those whose text follows from the actor's name alone have a message template, so the text
+ * is rendered when read rather than carried. Codes are part of the format; never reuse one.
+ */
+enum NotificationType {
+    FRIEND_REQUEST(1, " sent you a friend request."),
+    COMMENT(2, " commented on your post."),
+    LIKE(3, " liked your post."),
+    GROUP_JOIN(4, null),
+    GROUP_LEAVE(5, null);
+
+    private static final NotificationType[] BY_CODE = new NotificationType[256];
+
+    static {
+        for (NotificationType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    final int code;
+    /** follows the actor's name; null if the message names more than the actor */
+    private final String template;
+
+    NotificationType(int code, String template) {
+        this.code = code;
+        this.template = template;
+    }
+
+    /** The type named {@code eventType}, or null for a type the format has no code for. */
+    static NotificationType of(String eventType) {
+        if (eventType == null) {
+            return null;
+        }
+        for (NotificationType type : values()) {
+            if (type.name().equals(eventType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    static NotificationType byCode(int code) {
+        return BY_CODE[code & 0xFF];
+    }
+
+    /** The standard message for an event, or null if its type has none or the actor is unknown. */
+    static String render(String eventType, String actorName) {
+        NotificationType type = of(eventType);
+        return type == null || type.template == null || actorName == null ? null : actorName + type.template;
+    }
+}
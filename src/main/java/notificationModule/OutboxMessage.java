@@ -0,0 +1,81 @@
+package notificationModule;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification waiting to be put on the queue, written in the transaction that caused it
+ * and removed by {@link NotificationOutbox} in the transaction that sends it.
+ */
+@Entity
+@Table(name = "notification_outbox")
+public class OutboxMessage {
+
+    /** Longer messages are cut to fit, so a long group name can't fail the caller's transaction. */
+    public static final int MAX_MESSAGE_LENGTH = 1000;
+
+    // pooled sequence so a transaction's outbox rows go out in one insert batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @SequenceGenerator(name = "notification_outbox_seq", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    private String eventType;
+    private Long fromUserId;
+    private Long toUserId;
+    private Long postId;
+    @Column(length = MAX_MESSAGE_LENGTH)
+    private String message;
+    private String actorName;
+    private Integer actorCount;   // null on rows written before the column existed
+    private LocalDateTime createdAt;
+
+    public OutboxMessage() {}
+
+    public OutboxMessage(NotificationEvent event) {
+        eventType = event.getEventType();
+        fromUserId = event.getFromUserId();
+        toUserId = event.getToUserId();
+        postId = event.getPostId();
+        message = truncate(event.getMessage());
+        actorName = event.getActorName();
+        actorCount = event.getActorCount();
+        createdAt = LocalDateTime.now();
+    }
+
+    public NotificationEvent toEvent() {
+        NotificationEvent event = new NotificationEvent();
+        event.setEventType(eventType);
+        event.setFromUserId(fromUserId);
+        event.setToUserId(toUserId);
+        event.setPostId(postId);
+        event.setMessage(message);
+        event.setActorName(actorName);
+        if (actorCount != null) {
+            event.setActorCount(actorCount);
+        }
+        return event;
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_MESSAGE_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_MESSAGE_LENGTH - 1) + "\u2026";
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,258 @@
+package notificationModule;
+
+import app.DTO.UnreadCountDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Unread notification counts and read cursors, served from memory so the badge costs a map
+ * lookup. A user's state is loaded from {@link NotificationReadState} the first time it is
+ * needed, kept current from {@link ActivityLogged} events, and written back every few seconds.
+ * <p>
+ * Counters live in a bounded Caffeine cache. A counter evicted with unwritten changes is
+ * parked until the next write-back, and picked up again if its user comes back first.
+ * A change counts as written only once its transaction has committed.
+ * <p>
+ * A crash loses changes since the last write-back, so a badge can be off until the user next
+ * marks their notifications read.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UnreadCounters {
+
+    private static final long MAX_USERS = Long.getLong("notification.unread.maxUsers", 200_000);
+    /** Read states written back per transaction at most. */
+    private static final int WRITE_BATCH = 500;
+
+    private static final Logger LOG = Logger.getLogger(UnreadCounters.class.getName());
+
+    @EJB
+    private ActivityLogService activityLogService;
+
+    private final Cache<Long, Counter> counters;
+    /** evicted with changes not yet written; flush writes and drops them */
+    private final Map<Long, Counter> parked = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    public UnreadCounters() {
+        counters = Caffeine.newBuilder()
+                .maximumSize(MAX_USERS)
+                // runs inside the atomic removal, so a lookup can't miss the counter in between
+                .evictionListener((Long userId, Counter counter, RemovalCause cause) -> {
+                    if (counter != null && counter.isDirty()) {
+                        parked.put(userId, counter);
+                    }
+                })
+                .executor(Runnable::run)
+                .build();
+    }
+
+    // no transaction: after the first call per user this is a map lookup
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public UnreadCountDTO get(long userId) {
+        return counter(userId).snapshot();
+    }
+
+    /** Recipients without a counter in memory are loaded with one query per batch. */
+    public void onActivityLogged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ActivityLogged event) {
+        Set<Long> recipients = new LinkedHashSet<>();
+        for (ActivityLog entry : event.getEntries()) {
+            if (entry.getUserId() != null) {
+                recipients.add(entry.getUserId());
+            }
+        }
+        Map<Long, Counter> loaded = new HashMap<>(counters.getAllPresent(recipients));
+        recipients.removeAll(loaded.keySet());
+        if (!recipients.isEmpty()) {
+            Map<Long, NotificationReadState> rows = activityLogService.readStates(recipients);
+            for (Long userId : recipients) {
+                loaded.put(userId, counters.get(userId, id -> unpark(id, rows.get(id))));
+            }
+        }
+        for (ActivityLog entry : event.getEntries()) {
+            if (entry.getUserId() != null) {
+                loaded.get(entry.getUserId()).logged(event.getPreviousTimestamp(entry));
+            }
+        }
+    }
+
+    /**
+     * Move the user's read cursor to {@code upTo}, or to now if null. Entries newer than an
+     * explicit cursor stay unread, so a client can pass the newest timestamp it has shown.
+     */
+    public UnreadCountDTO markRead(long userId, LocalDateTime upTo) {
+        Counter counter = counter(userId);
+        synchronized (counter) {
+            LocalDateTime cursor = upTo == null ? LocalDateTime.now() : upTo;
+            long unread = upTo == null ? 0 : activityLogService.countNewerThan(userId, cursor);
+            counter.reset(cursor, unread);
+            return counter.snapshot();
+        }
+    }
+
+    /**
+     * Write changed counters back, one transaction per {@link #WRITE_BATCH}. A counter is marked
+     * written up to the change it was read at, after its transaction commits; on failure it
+     * stays changed and is retried on the next run.
+     */
+    @Schedule(hour = "*", minute = "*", second = "*/10", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Pending> changed = new ArrayList<>();
+            collect(parked, changed);
+            collect(counters.asMap(), changed);
+            for (int from = 0; from < changed.size(); from += WRITE_BATCH) {
+                List<Pending> chunk = changed.subList(from, Math.min(from + WRITE_BATCH, changed.size()));
+                List<NotificationReadState> states = new ArrayList<>(chunk.size());
+                for (Pending pending : chunk) {
+                    states.add(pending.state);
+                }
+                activityLogService.writeReadStates(states);
+                for (Pending pending : chunk) {
+                    pending.counter.written(pending.version);
+                    if (!pending.counter.isDirty()) {
+                        parked.remove(pending.state.getUserId(), pending.counter);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "unread_counters.flush_failed", e);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /** Figures for the metrics endpoint. */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("users", counters.estimatedSize());
+        out.put("maxUsers", MAX_USERS);
+        out.put("parked", parked.size());
+        return out;
+    }
+
+    private Counter counter(long userId) {
+        Counter counter = counters.getIfPresent(userId);
+        if (counter != null) {
+            return counter;
+        }
+        return counters.get(userId, id -> unpark(id, activityLogService.readStates(List.of(id)).get(id)));
+    }
+
+    /** A parked counter takes precedence over the row: it holds changes the row lacks. */
+    private Counter unpark(Long userId, NotificationReadState row) {
+        Counter counter = parked.remove(userId);
+        if (counter != null) {
+            return counter;
+        }
+        return row == null ? new Counter(0, null) : new Counter(row.getUnreadCount(), row.getLastReadAt());
+    }
+
+    private static void collect(Map<Long, Counter> from, List<Pending> into) {
+        for (Map.Entry<Long, Counter> entry : from.entrySet()) {
+            Pending pending = entry.getValue().takeIfDirty(entry.getKey());
+            if (pending != null) {
+                into.add(pending);
+            }
+        }
+    }
+
+    /** A counter's state as of {@code version}, on its way to the database. */
+    private static final class Pending {
+        final Counter counter;
+        final NotificationReadState state;
+        final long version;
+
+        Pending(Counter counter, NotificationReadState state, long version) {
+            this.counter = counter;
+            this.state = state;
+            this.version = version;
+        }
+    }
+
+    private static final class Counter {
+        private long unread;
+        private LocalDateTime lastReadAt;
+        /** bumped by every change; writtenVersion is the last one known to be committed */
+        private long version;
+        private long writtenVersion;
+
+        Counter(long unread, LocalDateTime lastReadAt) {
+            this.unread = unread;
+            this.lastReadAt = lastReadAt;
+        }
+
+        /**
+         * A new entry is unread. An updated one becomes unread again only if it had been
+         * read, i.e. was last touched at or before the cursor; otherwise it is counted already.
+         */
+        synchronized void logged(LocalDateTime previousTimestamp) {
+            if (previousTimestamp == null || (lastReadAt != null && !previousTimestamp.isAfter(lastReadAt))) {
+                unread++;
+                version++;
+            }
+        }
+
+        synchronized void reset(LocalDateTime cursor, long unreadAfter) {
+            lastReadAt = cursor;
+            unread = unreadAfter;
+            version++;
+        }
+
+        synchronized UnreadCountDTO snapshot() {
+            return new UnreadCountDTO(unread, lastReadAt);
+        }
+
+        synchronized boolean isDirty() {
+            return version != writtenVersion;
+        }
+
+        synchronized Pending takeIfDirty(long userId) {
+            if (version == writtenVersion) {
+                return null;
+            }
+            NotificationReadState state = new NotificationReadState();
+            state.setUserId(userId);
+            state.setLastReadAt(lastReadAt);
+            state.setUnreadCount(unread);
+            return new Pending(this, state, version);
+        }
+
+        synchronized void written(long committedVersion) {
+            writtenVersion = Math.max(writtenVersion, committedVersion);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import config.JacksonConfig;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Responses that serialize rows one at a time while they are being read, so the
+ * heap holds one row (plus the generator's buffer) no matter how many are sent.
+ * <p>
+ * The body is a JSON array by default, or newline-delimited JSON when the client
+ * accepts {@value #NDJSON}. Either way it goes out chunked as it is written.
+ */
+public final class JsonStreaming {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    /** Pushes rows into a sink, typically a service method walking a query's result stream. */
+    @FunctionalInterface
+    public interface RowSource<T> {
+        void forEach(Consumer<T> sink);
+    }
+
+    private JsonStreaming() {}
+
+    public static boolean wantsNdjson(HttpHeaders headers) {
+        return headers.getAcceptableMediaTypes().stream()
+                .anyMatch(t -> "application".equals(t.getType()) && "x-ndjson".equals(t.getSubtype()));
+    }
+
+    /** A 200 response streaming every row of {@code source} in the format the client asked for. */
+    public static <T> Response.ResponseBuilder ok(HttpHeaders headers, RowSource<T> source) {
+        boolean ndjson = wantsNdjson(headers);
+        return Response.ok(body(source, ndjson), ndjson ? NDJSON : MediaType.APPLICATION_JSON);
+    }
+
+    public static <T> StreamingOutput body(RowSource<T> source, boolean ndjson) {
+        return out -> {
+            JsonGenerator gen = JacksonConfig.mapper().getFactory().createGenerator(out);
+            // the container owns the response stream
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (ndjson) {
+                gen.setRootValueSeparator(new SerializedString("\n"));
+            } else {
+                gen.writeStartArray();
+            }
+            try {
+                source.forEach(row -> {
+                    try {
+                        gen.writeObject(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (ndjson) {
+                gen.writeRaw('\n');
+            } else {
+                gen.writeEndArray();
+            }
+            gen.close();
+        };
+    }
+}
@@ -0,0 +1,233 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency lists of a graph with long vertex ids, without boxing: an open-addressing
+ * hash table from vertex to a sorted {@code long[]} of its neighbours.
+ * <p>
+ * Built in two phases: {@link #append} edges in any order, then {@link #compact} once to
+ * sort, de-duplicate and trim. After that, {@link #add} keeps each list sorted by
+ * copy-on-write, so an array handed out by {@link #get} never changes underneath its reader.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public final class LongAdjacencyMap {
+
+    private static final long[] EMPTY = new long[0];
+    private static final long FREE = Long.MIN_VALUE;
+    /** rough JVM layout: array header, and a compressed reference */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private long[] keys;
+    private long[][] values;
+    /** fill level of each list while appending; null once compacted */
+    private int[] fill;
+    private int size;
+
+    public LongAdjacencyMap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedKeys * 2 - 1)) << 1;
+        allocate(capacity);
+        fill = new int[capacity];
+    }
+
+    /** The vertex's neighbours in ascending order; empty if it has none. Must not be modified. */
+    public long[] get(long key) {
+        int slot = find(key);
+        return slot < 0 ? EMPTY : values[slot];
+    }
+
+    public int degree(long key) {
+        return get(key).length;
+    }
+
+    public boolean contains(long key, long neighbour) {
+        return Arrays.binarySearch(get(key), neighbour) >= 0;
+    }
+
+    /** Number of vertices with at least one neighbour. */
+    public int size() {
+        return size;
+    }
+
+    /** Sum of all list lengths (each undirected edge counts twice). */
+    public long entries() {
+        long total = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                total += values[i].length;
+            }
+        }
+        return total;
+    }
+
+    /** Approximate retained size of the table and all lists. */
+    public long estimatedBytes() {
+        long bytes = 2L * ARRAY_HEADER_BYTES + (long) keys.length * (Long.BYTES + REFERENCE_BYTES);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                bytes += ARRAY_HEADER_BYTES + (long) values[i].length * Long.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /** Build phase: add a neighbour, unsorted and possibly duplicated. */
+    public void append(long key, long neighbour) {
+        if (fill == null) {
+            throw new IllegalStateException("Already compacted; use add()");
+        }
+        int slot = slotFor(key);
+        long[] list = values[slot];
+        if (fill[slot] == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, list.length * 2));
+            values[slot] = list;
+        }
+        list[fill[slot]++] = neighbour;
+    }
+
+    /** End of the build phase: sort, de-duplicate and trim every list. */
+    public void compact() {
+        if (fill == null) {
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == FREE) {
+                continue;
+            }
+            long[] list = values[i];
+            int n = fill[i];
+            Arrays.sort(list, 0, n);
+            int unique = 0;
+            for (int j = 0; j < n; j++) {
+                if (unique == 0 || list[j] != list[unique - 1]) {
+                    list[unique++] = list[j];
+                }
+            }
+            values[i] = unique == list.length ? list : Arrays.copyOf(list, unique);
+        }
+        fill = null;
+    }
+
+    /**
+     * Insert a neighbour into a compacted map, keeping the list sorted.
+     *
+     * @return false if it was already there
+     */
+    public boolean add(long key, long neighbour) {
+        if (fill != null) {
+            throw new IllegalStateException("Not compacted yet; use append()");
+        }
+        int slot = slotFor(key);
+        long[] list = values[slot];
+        int pos = Arrays.binarySearch(list, neighbour);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        long[] grown = new long[list.length + 1];
+        System.arraycopy(list, 0, grown, 0, pos);
+        grown[pos] = neighbour;
+        System.arraycopy(list, pos, grown, pos + 1, list.length - pos);
+        values[slot] = grown;
+        return true;
+    }
+
+    /**
+     * Remove a neighbour from a compacted map, copy-on-write like {@link #add}.
+     * The vertex stays in the table with an empty list.
+     *
+     * @return false if it was not there
+     */
+    public boolean remove(long key, long neighbour) {
+        if (fill != null) {
+            throw new IllegalStateException("Not compacted yet");
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        long[] list = values[slot];
+        int pos = Arrays.binarySearch(list, neighbour);
+        if (pos < 0) {
+            return false;
+        }
+        long[] shrunk = new long[list.length - 1];
+        System.arraycopy(list, 0, shrunk, 0, pos);
+        System.arraycopy(list, pos + 1, shrunk, pos, list.length - pos - 1);
+        values[slot] = shrunk;
+        return true;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            if (keys[slot] == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    /** Slot of {@code key}, inserting it with an empty list if absent. */
+    private int slotFor(long key) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Reserved key");
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        if ((size + 1) * 4L > keys.length * 3L) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        slot = hash(key) & mask;
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = EMPTY;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[][] oldValues = values;
+        int[] oldFill = fill;
+        allocate(oldKeys.length * 2);
+        if (oldFill != null) {
+            fill = new int[keys.length];
+        }
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == FREE) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (keys[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            if (oldFill != null) {
+                fill[slot] = oldFill[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new long[capacity][];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,100 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from a long key to a hit count and a summed score,
+ * for tallying large numbers of ids without boxing them.
+ * <p>
+ * Not thread-safe; build one per thread and {@link #mergeFrom merge}.
+ */
+public final class LongScoreTable {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long key, int count, double score);
+    }
+
+    private long[] keys;
+    private int[] counts;
+    private double[] scores;
+    private int size;
+
+    public LongScoreTable(int expectedKeys) {
+        allocate(Integer.highestOneBit(Math.max(16, expectedKeys * 2 - 1)) << 1);
+    }
+
+    /** Count one more hit for {@code key} and add {@code score} to its sum. */
+    public void add(long key, double score) {
+        add(key, 1, score);
+    }
+
+    public void mergeFrom(LongScoreTable other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                add(other.keys[i], other.counts[i], other.scores[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                visitor.visit(keys[i], counts[i], scores[i]);
+            }
+        }
+    }
+
+    private void add(long key, int count, double score) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Reserved key");
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == FREE) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                grow();
+                add(key, count, score);
+                return;
+            }
+            keys[slot] = key;
+            size++;
+        }
+        counts[slot] += count;
+        scores[slot] += score;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        double[] oldScores = scores;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                add(oldKeys[i], oldCounts[i], oldScores[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        counts = new int[capacity];
+        scores = new double[capacity];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
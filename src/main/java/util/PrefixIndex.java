@@ -0,0 +1,248 @@
+package util;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.LongPredicate;
+
+/**
+ * Immutable prefix index for as-you-type search: finds the most popular documents with a
+ * word starting with a given prefix.
+ * <p>
+ * Every word start of every document's normalized text is an entry, and the entries are
+ * sorted by the text from that point on, so the entries matching a prefix form one
+ * contiguous range found by two binary searches. A max-segment tree over the entries'
+ * popularity then yields the range's top documents one at a time, best first, in
+ * O(log n) each, however wide the range.
+ * <p>
+ * Documents are identified by a caller-chosen {@code long} ref. Built once with a
+ * {@link Builder}; safe to share between threads afterwards.
+ */
+public final class PrefixIndex {
+
+    /** words starting further into a document than this are not indexed */
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    public static final class Builder {
+        private long[] refs = new long[16];
+        private String[] labels = new String[16];
+        private String[] texts = new String[16];
+        private int[] popularity = new int[16];
+        private int size;
+
+        /** Add a document; {@code label} is returned as is, its normalized form is indexed. */
+        public Builder add(long ref, String label, int popularity) {
+            if (size == refs.length) {
+                int capacity = size * 2;
+                refs = Arrays.copyOf(refs, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+                this.popularity = Arrays.copyOf(this.popularity, capacity);
+            }
+            refs[size] = ref;
+            labels[size] = label;
+            texts[size] = SearchText.normalize(label);
+            this.popularity[size] = popularity;
+            size++;
+            return this;
+        }
+
+        public PrefixIndex build() {
+            return new PrefixIndex(Arrays.copyOf(refs, size), Arrays.copyOf(labels, size),
+                    Arrays.copyOf(texts, size), Arrays.copyOf(popularity, size));
+        }
+    }
+
+    private final long[] refs;
+    private final String[] labels;
+    private final String[] texts;
+    private final int[] popularity;
+    /** (document << 16 | word offset), sorted by the text from the offset on */
+    private final long[] entries;
+    /** implicit segment tree: node i covers its children 2i and 2i+1, leaves at n + entry */
+    private final int[] best;
+
+    private PrefixIndex(long[] refs, String[] labels, String[] texts, int[] popularity) {
+        this.refs = refs;
+        this.labels = labels;
+        this.texts = texts;
+        this.popularity = popularity;
+
+        int count = 0;
+        for (String text : texts) {
+            count += wordStarts(text);
+        }
+        Long[] sorted = new Long[count];
+        int n = 0;
+        for (int doc = 0; doc < texts.length; doc++) {
+            String text = texts[doc];
+            for (int at = 0; at < text.length() && at <= MAX_OFFSET; at++) {
+                if (SearchText.isWordStart(text, at)) {
+                    sorted[n++] = (long) doc << 16 | at;
+                }
+            }
+        }
+        Arrays.sort(sorted, 0, n, this::compareSuffixes);
+        entries = new long[n];
+        for (int i = 0; i < n; i++) {
+            entries[i] = sorted[i];
+        }
+
+        best = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            best[n + i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            best[i] = better(best[2 * i], best[2 * i + 1]);
+        }
+    }
+
+    public int size() {
+        return refs.length;
+    }
+
+    public long ref(int doc) {
+        return refs[doc];
+    }
+
+    public String label(int doc) {
+        return labels[doc];
+    }
+
+    public int popularity(int doc) {
+        return popularity[doc];
+    }
+
+    /**
+     * Up to {@code k} documents with a word starting with {@code prefix}, most popular first,
+     * skipping those whose ref {@code skip} accepts.
+     */
+    public int[] top(String prefix, int k, LongPredicate skip) {
+        String q = SearchText.normalize(prefix);
+        int n = entries.length;
+        if (q.isEmpty() || n == 0 || k <= 0) {
+            return new int[0];
+        }
+        int from = bound(q, false);
+        int to = bound(q, true);
+
+        // best-first over sub-ranges, each keyed by the position of its most popular entry
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compareEntries(a[2], b[2]));
+        if (from < to) {
+            ranges.add(new int[]{from, to, argmax(from, to)});
+        }
+        int[] out = new int[k];
+        int found = 0;
+        while (found < k && !ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int at = range[2];
+            int doc = doc(at);
+            if (!skip.test(refs[doc]) && !contains(out, found, doc)) {
+                out[found++] = doc;
+            }
+            if (range[0] < at) {
+                ranges.add(new int[]{range[0], at, argmax(range[0], at)});
+            }
+            if (at + 1 < range[1]) {
+                ranges.add(new int[]{at + 1, range[1], argmax(at + 1, range[1])});
+            }
+        }
+        return Arrays.copyOf(out, found);
+    }
+
+    /** First entry at or past the prefix ({@code after} false) or past every match (true). */
+    private int bound(String q, boolean after) {
+        int lo = 0;
+        int hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(entries[mid], q);
+            if (cmp < 0 || (after && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Entry position with the highest popularity in [from, to). */
+    private int argmax(int from, int to) {
+        int n = entries.length;
+        int result = -1;
+        for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = result < 0 ? best[l] : better(result, best[l]);
+                l++;
+            }
+            if ((r & 1) == 1) {
+                r--;
+                result = result < 0 ? best[r] : better(result, best[r]);
+            }
+        }
+        return result;
+    }
+
+    private int better(int a, int b) {
+        return compareEntries(a, b) <= 0 ? a : b;
+    }
+
+    /** More popular first, then earlier in the sort order. */
+    private int compareEntries(int a, int b) {
+        int byPopularity = Integer.compare(popularity[doc(b)], popularity[doc(a)]);
+        return byPopularity != 0 ? byPopularity : Integer.compare(a, b);
+    }
+
+    private int doc(int at) {
+        return (int) (entries[at] >>> 16);
+    }
+
+    /** Lexicographic order of the text from each entry's offset on. */
+    private int compareSuffixes(Long a, Long b) {
+        String s = texts[(int) (a >>> 16)];
+        String t = texts[(int) (b >>> 16)];
+        int i = (int) (a & MAX_OFFSET);
+        int j = (int) (b & MAX_OFFSET);
+        while (i < s.length() && j < t.length()) {
+            int cmp = Character.compare(s.charAt(i++), t.charAt(j++));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(s.length() - i, t.length() - j);
+    }
+
+    /** Compares the first {@code q.length()} chars of an entry with {@code q}; 0 if it starts with it. */
+    private int comparePrefix(long entry, String q) {
+        String s = texts[(int) (entry >>> 16)];
+        int i = (int) (entry & MAX_OFFSET);
+        for (int j = 0; j < q.length(); j++, i++) {
+            if (i == s.length()) {
+                return -1;
+            }
+            int cmp = Character.compare(s.charAt(i), q.charAt(j));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static int wordStarts(String text) {
+        int count = 0;
+        for (int at = 0; at < text.length() && at <= MAX_OFFSET; at++) {
+            if (SearchText.isWordStart(text, at)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package util;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Walks a query's results through a forward-only JDBC cursor instead of materializing a list.
+ * <p>
+ * Entities are loaded read-only (no dirty-checking snapshots) and the persistence context is
+ * cleared every {@link #FETCH_SIZE} rows, so memory stays flat however many rows there are.
+ * The caller must be inside a transaction for the whole walk, with no unflushed changes
+ * in the persistence context (the periodic clear would discard them).
+ */
+public final class ResultStreams {
+
+    public static final int FETCH_SIZE = 500;
+
+    private ResultStreams() {}
+
+    public static <T> void forEach(EntityManager em, TypedQuery<T> query, Consumer<? super T> sink) {
+        query.setHint("org.hibernate.fetchSize", FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true);
+        try (Stream<T> rows = query.getResultStream()) {
+            int[] seen = {0};
+            rows.forEach(row -> {
+                sink.accept(row);
+                if (++seen[0] % FETCH_SIZE == 0) {
+                    em.clear();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization shared by the in-memory search indexes, so that queries and indexed
+ * text compare the same way.
+ */
+public final class SearchText {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern CONTROLS = Pattern.compile("\\p{Cntrl}");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private SearchText() {
+    }
+
+    /** Lower-cased, accents stripped, whitespace collapsed; control characters dropped. */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String s = Normalizer.normalize(text, Normalizer.Form.NFD);
+        s = MARKS.matcher(s).replaceAll("").toLowerCase(Locale.ROOT);
+        s = CONTROLS.matcher(s).replaceAll("");
+        return SPACES.matcher(s).replaceAll(" ").trim();
+    }
+
+    /** Whether a word of {@code text} starts at {@code at}. */
+    public static boolean isWordStart(String text, int at) {
+        return Character.isLetterOrDigit(text.charAt(at))
+                && (at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1)));
+    }
+
+    /** Whether a word of the normalized {@code text} starts with the normalized {@code prefix}. */
+    public static boolean hasWordStartingWith(String text, String prefix) {
+        for (int at = text.indexOf(prefix); at >= 0; at = text.indexOf(prefix, at + 1)) {
+            if (isWordStart(text, at)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,288 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from character trigrams to the ids of documents containing them, for
+ * substring search over short text fields (a name and an email) without scanning every row.
+ * <p>
+ * Each trigram is packed into a long (three 16-bit chars) and mapped to a sorted posting
+ * list of ids in a {@link LongAdjacencyMap}. A query of three or more characters takes the
+ * intersection of its trigrams' postings, starting from the shortest, and checks the
+ * survivors against the stored text. Two-character queries use an extra "word start"
+ * gram per word and so match word prefixes only.
+ * <p>
+ * Built like {@link LongAdjacencyMap}: {@link #append} every document, {@link #compact} once,
+ * then {@link #put} to add or replace documents. Not thread-safe; callers synchronize.
+ */
+public final class TrigramIndex {
+
+    /** Shortest query the index can answer. */
+    public static final int MIN_QUERY_LENGTH = 2;
+    /** Deepest ranked position a page can reach; every match is still verified and ranked. */
+    public static final int MAX_RESULTS = 100_000;
+
+    /** stands in for the character before a word, never present in normalized text */
+    private static final char WORD_START = '\u0001';
+    /** sort key layout: match tier, then name length, then id */
+    private static final int ID_BITS = 44;
+    private static final int LENGTH_BITS = 16;
+
+    private final LongAdjacencyMap postings;
+    /** normalized name and email of each document */
+    private final Map<Long, String[]> documents;
+
+    public TrigramIndex(int expectedDocuments) {
+        postings = new LongAdjacencyMap(4096);
+        documents = new HashMap<>(Math.max(16, expectedDocuments * 4 / 3));
+    }
+
+    /** Build phase: index a document. Ids must be unique. */
+    public void append(long id, String name, String email) {
+        checkId(id);
+        String[] doc = {SearchText.normalize(name), SearchText.normalize(email)};
+        documents.put(id, doc);
+        for (long gram : grams(doc)) {
+            postings.append(gram, id);
+        }
+    }
+
+    /** End of the build phase. */
+    public void compact() {
+        postings.compact();
+    }
+
+    /** Index a new document, or re-index one whose text changed. */
+    public void put(long id, String name, String email) {
+        checkId(id);
+        String[] doc = {SearchText.normalize(name), SearchText.normalize(email)};
+        String[] old = documents.put(id, doc);
+        long[] fresh = grams(doc);
+        if (old != null) {
+            for (long gram : grams(old)) {
+                if (Arrays.binarySearch(fresh, gram) < 0) {
+                    postings.remove(gram, id);
+                }
+            }
+        }
+        for (long gram : fresh) {
+            postings.add(gram, id);
+        }
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /** Approximate retained size of the posting lists. */
+    public long estimatedPostingBytes() {
+        return postings.estimatedBytes();
+    }
+
+    /**
+     * Ids of one page of the documents whose name or email contains {@code query}, ignoring case and
+     * accents. Ranked by where the query matched (exact name, name prefix, start of a word in
+     * the name, anywhere in the name, then the same for the email), then by shorter name.
+     *
+     * @throws IllegalArgumentException if the query is shorter than {@link #MIN_QUERY_LENGTH}
+     */
+    public long[] search(String query, int offset, int limit) {
+        String q = SearchText.normalize(query);
+        if (q.length() < MIN_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query must be at least " + MIN_QUERY_LENGTH + " characters");
+        }
+        long[] candidates = candidates(q);
+        boolean wordPrefixOnly = q.length() < 3;
+
+        // only the best offset + limit keys are kept, in a max-heap whose root is the worst of them
+        int from = Math.min(Math.max(offset, 0), MAX_RESULTS);
+        int wanted = (int) Math.min((long) from + Math.max(limit, 0), MAX_RESULTS);
+        long[] heap = new long[Math.min(wanted, candidates.length)];
+        int kept = 0;
+        for (long candidate : candidates) {
+            String[] doc = documents.get(candidate);
+            int tier = tier(doc, q, wordPrefixOnly);
+            if (tier < 0) {
+                continue;
+            }
+            long length = Math.min(doc[0].length(), (1 << LENGTH_BITS) - 1);
+            long key = (long) tier << (ID_BITS + LENGTH_BITS) | length << ID_BITS | candidate;
+            if (kept < heap.length) {
+                heap[kept] = key;
+                siftUp(heap, kept++);
+            } else if (kept > 0 && key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, kept);
+            }
+        }
+        Arrays.sort(heap, 0, kept);
+
+        int to = kept;
+        from = Math.min(from, kept);
+        long[] page = new long[to - from];
+        for (int i = from; i < to; i++) {
+            page[i - from] = heap[i] & ((1L << ID_BITS) - 1);
+        }
+        return page;
+    }
+
+    private static void siftUp(long[] heap, int at) {
+        long key = heap[at];
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[at] = heap[parent];
+            at = parent;
+        }
+        heap[at] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int at = 0;
+        for (int child = 1; child < size; child = 2 * at + 1) {
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = key;
+    }
+
+    /** Ids share the sort key with the match tier and name length. */
+    private static void checkId(long id) {
+        if (id < 0 || id >= 1L << ID_BITS) {
+            throw new IllegalArgumentException("Id out of range: " + id);
+        }
+    }
+
+    /** Ids holding every gram of the query, ascending. */
+    private long[] candidates(String q) {
+        long[] grams = q.length() < 3 ? wordStartGrams(q) : trigrams(q);
+        if (grams.length == 0) {
+            return new long[0];
+        }
+        long[][] lists = new long[grams.length][];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        long[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = intersect(result, lists[i]);
+        }
+        return result;
+    }
+
+    /** Smaller list first; binary search narrows the start in the larger one each step. */
+    private static long[] intersect(long[] small, long[] large) {
+        long[] out = new long[small.length];
+        int n = 0;
+        int from = 0;
+        for (long id : small) {
+            int pos = Arrays.binarySearch(large, from, large.length, id);
+            if (pos >= 0) {
+                out[n++] = id;
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+            if (from == large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** 0-3 for a name match, 4-7 for an email match, -1 for none. */
+    private static int tier(String[] doc, String q, boolean wordPrefixOnly) {
+        int tier = fieldTier(doc[0], q, wordPrefixOnly);
+        if (tier >= 0) {
+            return tier;
+        }
+        tier = fieldTier(doc[1], q, wordPrefixOnly);
+        return tier < 0 ? -1 : 4 + tier;
+    }
+
+    private static int fieldTier(String field, String q, boolean wordPrefixOnly) {
+        if (field.equals(q)) {
+            return 0;
+        }
+        if (field.startsWith(q)) {
+            return 1;
+        }
+        boolean anywhere = false;
+        for (int at = field.indexOf(q); at >= 0; at = field.indexOf(q, at + 1)) {
+            if (!Character.isLetterOrDigit(field.charAt(at - 1))) {
+                return 2;
+            }
+            anywhere = true;
+        }
+        return anywhere && !wordPrefixOnly ? 3 : -1;
+    }
+
+    /** Distinct grams of a document, ascending. */
+    private static long[] grams(String[] doc) {
+        List<long[]> parts = new ArrayList<>(4);
+        for (String field : doc) {
+            parts.add(trigrams(field));
+            parts.add(wordStartGrams(field));
+        }
+        int total = 0;
+        for (long[] part : parts) {
+            total += part.length;
+        }
+        long[] all = new long[total];
+        int n = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, all, n, part.length);
+            n += part.length;
+        }
+        return distinct(all);
+    }
+
+    private static long[] trigrams(String s) {
+        long[] out = new long[Math.max(0, s.length() - 2)];
+        for (int i = 0; i + 2 < s.length(); i++) {
+            out[i] = pack(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2));
+        }
+        return distinct(out);
+    }
+
+    /** One gram per word of at least two characters: the word-start mark and its first two chars. */
+    private static long[] wordStartGrams(String s) {
+        long[] out = new long[s.length()];
+        int n = 0;
+        for (int i = 0; i + 1 < s.length(); i++) {
+            if (SearchText.isWordStart(s, i)) {
+                out[n++] = pack(WORD_START, s.charAt(i), s.charAt(i + 1));
+            }
+        }
+        return distinct(Arrays.copyOf(out, n));
+    }
+
+    private static long[] distinct(long[] values) {
+        Arrays.sort(values);
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (n == 0 || values[i] != values[n - 1]) {
+                values[n++] = values[i];
+            }
+        }
+        return n == values.length ? values : Arrays.copyOf(values, n);
+    }
+
+    private static long pack(char a, char b, char c) {
+        return (long) a << 32 | (long) b << 16 | c;
+    }
+}
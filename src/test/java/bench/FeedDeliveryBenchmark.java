@@ -0,0 +1,156 @@
+package bench;
+
+import Domain.*;
+import Services.UserServices.FanoutPolicy;
+import Services.UserServices.FeedCache;
+import Services.UserServices.TimelineService;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+
+/**
+ * Read and write cost of feed delivery on both sides of the fan-out threshold.
+ * <p>
+ * Runs the real {@link TimelineService} and {@link FanoutPolicy} against an in-memory H2
+ * database: one author with N friends posts repeatedly (write cost, timeline rows written),
+ * then one of the friends reads the first and a deep page of their feed (read cost).
+ * The author is measured once below the threshold (push) and once above it (pull).
+ * <p>
+ * Not a unit test; run the main method from the IDE or with the test classpath:
+ * {@code java -cp target/classes:target/test-classes:<deps> bench.FeedDeliveryBenchmark [friends] [posts]}
+ * with hibernate-core's jakarta.persistence-api 3.1 ahead of the (provided) jakartaee-api 9.1 jar
+ * and without the swagger jars (their javax JAXB Jackson module breaks Hibernate's JSON mapper discovery).
+ */
+public class FeedDeliveryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int friends = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int posts = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        try (SessionFactory sessionFactory = new Configuration()
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.hbm2ddl.auto", "create")
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Post.class)
+                .addAnnotatedClass(Comment.class)
+                .addAnnotatedClass(Connection.class)
+                .addAnnotatedClass(Group.class)
+                .addAnnotatedClass(TimelineEntry.class)
+                .buildSessionFactory();
+             Session session = sessionFactory.openSession()) {
+
+            FanoutPolicy policy = new FanoutPolicy();
+            inject(policy, "em", session);
+            inject(policy, "feedCache", new FeedCache());
+            TimelineService timelines = new TimelineService();
+            inject(timelines, "em", session);
+            inject(timelines, "fanoutPolicy", policy);
+
+            session.beginTransaction();
+            User author = seedAuthorWithFriends(session, friends);
+            Long readerId = author.getId() + 1;
+            session.getTransaction().commit();
+
+            System.out.printf("author with %d friends, %d posts per run%n%n", friends, posts);
+            System.out.printf("%-5s %-9s %14s %14s %16s %16s%n",
+                    "mode", "threshold", "write us/post", "rows/post", "read us (first)", "read us (deep)");
+
+            // push: threshold above the author's friend count; pull: at or below it
+            run(session, policy, timelines, author, readerId, friends + 1, posts, "push");
+            run(session, policy, timelines, author, readerId, friends, posts, "pull");
+        }
+    }
+
+    private static void run(Session session, FanoutPolicy policy, TimelineService timelines,
+                            User author, Long readerId, int threshold, int posts, String mode) {
+        session.beginTransaction();
+        session.createMutationQuery("DELETE FROM TimelineEntry").executeUpdate();
+        session.createMutationQuery("DELETE FROM Post").executeUpdate();
+        policy.setThreshold(threshold);
+        session.getTransaction().commit();
+
+        long rowsBefore = timelineRows(session);
+        long writeNanos = 0;
+        for (int i = 0; i < posts; i++) {
+            session.beginTransaction();
+            long start = System.nanoTime();
+            Post post = new Post();
+            post.setAuthor(author);
+            post.setContent("post " + i);
+            post.setCreatedAt(LocalDateTime.now().plusNanos(i * 1000L));
+            session.persist(post);
+            timelines.fanOut(post);
+            session.getTransaction().commit();
+            writeNanos += System.nanoTime() - start;
+        }
+        long rowsPerPost = (timelineRows(session) - rowsBefore) / posts;
+
+        int reads = 200;
+        long firstNanos = 0;
+        long deepNanos = 0;
+        session.beginTransaction();
+        TimelineService.Page first = timelines.readPage(readerId, null, 20);
+        var deepCursor = first.getEntries().get(first.getEntries().size() - 1);
+        for (int i = 0; i < reads; i++) {
+            session.clear();
+            long start = System.nanoTime();
+            timelines.readPage(readerId, null, 20);
+            firstNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            timelines.readPage(readerId, deepCursor, 20);
+            deepNanos += System.nanoTime() - start;
+        }
+        session.getTransaction().commit();
+
+        System.out.printf("%-5s %-9d %14d %14d %16d %16d%n", mode, threshold,
+                writeNanos / posts / 1000, rowsPerPost, firstNanos / reads / 1000, deepNanos / reads / 1000);
+    }
+
+    private static User seedAuthorWithFriends(Session session, int friends) {
+        User author = newUser(session, 0);
+        for (int i = 1; i <= friends; i++) {
+            User friend = newUser(session, i);
+            Connection connection = new Connection();
+            connection.setSender(author);
+            connection.setReceiver(friend);
+            connection.setStatus(Status.ACCEPTED);
+            session.persist(connection);
+            if (i % 500 == 0) {
+                session.flush();
+                session.clear();
+                author = session.find(User.class, author.getId());
+            }
+        }
+        // what ConnectionService writes when a request is accepted
+        session.createNativeMutationQuery("""
+                INSERT INTO friendship (user_id, friend_id)
+                SELECT sender_id, receiver_id FROM connections
+                UNION
+                SELECT receiver_id, sender_id FROM connections
+                """).executeUpdate();
+        return author;
+    }
+
+    private static User newUser(Session session, int i) {
+        User user = new User();
+        user.setName("user" + i);
+        user.setEmail("user" + i + "@example.com");
+        user.setRole(Role.USER);
+        session.persist(user);
+        return user;
+    }
+
+    private static long timelineRows(Session session) {
+        return session.createQuery("SELECT COUNT(t) FROM TimelineEntry t", Long.class).getSingleResult();
+    }
+
+    private static void inject(Object target, String field, Object value) throws ReflectiveOperationException {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
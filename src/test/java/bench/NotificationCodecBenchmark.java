@@ -0,0 +1,122 @@
+package bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import notificationModule.NotificationCodec;
+import notificationModule.NotificationEvent;
+
+import java.util.Random;
+
+/**
+ * Size and speed of the notification wire formats: the JSON text the queue used to carry and
+ * the {@link NotificationCodec} binary format that replaced it.
+ * <p>
+ * Encodes and decodes a mix of likes, comments, friend requests and group joins, reading the
+ * message after each decode as the consumer does (the binary format renders it on demand).
+ * <p>
+ * Not a unit test; run the main method from the IDE or with the test classpath:
+ * {@code java -cp target/classes:target/test-classes:<deps> bench.NotificationCodecBenchmark [events] [rounds]}
+ */
+public class NotificationCodecBenchmark {
+
+    private static final String[] NAMES = {"Ann", "Bartholomew Okonkwo", "Chloé Dubois", "Dmitri Ivanov", "李小龙"};
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        NotificationEvent[] sample = sample(events, new Random(42));
+        ObjectMapper json = new ObjectMapper();
+
+        byte[][] jsonBytes = new byte[events][];
+        byte[][] binaryBytes = new byte[events][];
+        long jsonTotal = 0;
+        long binaryTotal = 0;
+        for (int i = 0; i < events; i++) {
+            jsonBytes[i] = json.writeValueAsBytes(sample[i]);
+            binaryBytes[i] = NotificationCodec.encode(sample[i]);
+            jsonTotal += jsonBytes[i].length;
+            binaryTotal += binaryBytes[i].length;
+        }
+
+        System.out.printf("%d events, %d rounds%n%n", events, rounds);
+        System.out.printf("%-7s %14s %18s %18s%n", "format", "bytes/event", "encode events/s", "decode events/s");
+
+        // first pass of each warms up the JIT; the second is reported
+        long sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (NotificationEvent event : sample) {
+                    sink += json.writeValueAsBytes(event).length;
+                }
+            }
+            long jsonEncode = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (byte[] bytes : jsonBytes) {
+                    sink += json.readValue(bytes, NotificationEvent.class).getMessage().length();
+                }
+            }
+            long jsonDecode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (NotificationEvent event : sample) {
+                    sink += NotificationCodec.encode(event).length;
+                }
+            }
+            long binaryEncode = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (byte[] bytes : binaryBytes) {
+                    sink += NotificationCodec.decode(bytes).getMessage().length();
+                }
+            }
+            long binaryDecode = System.nanoTime() - start;
+
+            if (pass == 1) {
+                long operations = (long) events * rounds;
+                System.out.printf("%-7s %14.1f %18.0f %18.0f%n", "json",
+                        (double) jsonTotal / events, perSecond(operations, jsonEncode), perSecond(operations, jsonDecode));
+                System.out.printf("%-7s %14.1f %18.0f %18.0f%n", "binary",
+                        (double) binaryTotal / events, perSecond(operations, binaryEncode), perSecond(operations, binaryDecode));
+            }
+        }
+        System.out.println();
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /** Mostly likes, as in a like storm, with realistic id ranges. */
+    private static NotificationEvent[] sample(int count, Random random) {
+        NotificationEvent[] out = new NotificationEvent[count];
+        for (int i = 0; i < count; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            NotificationEvent event = new NotificationEvent();
+            event.setFromUserId(1 + (long) random.nextInt(5_000_000));
+            event.setToUserId(1 + (long) random.nextInt(5_000_000));
+            event.setActorName(name);
+            int kind = random.nextInt(10);
+            if (kind < 7) {
+                event.setEventType("LIKE");
+                event.setPostId(1 + (long) random.nextInt(50_000_000));
+            } else if (kind < 9) {
+                event.setEventType("COMMENT");
+                event.setPostId(1 + (long) random.nextInt(50_000_000));
+            } else if (random.nextBoolean()) {
+                event.setEventType("FRIEND_REQUEST");
+                event.setPostId(1 + (long) random.nextInt(10_000_000));
+            } else {
+                event.setEventType("GROUP_JOIN");
+                event.setMessage(name + " joined your group \"Weekend hikers\".");
+            }
+            // rendered up front, as the JSON format carried it
+            event.getMessage();
+            out[i] = event;
+        }
+        return out;
+    }
+
+    private static double perSecond(long operations, long nanos) {
+        return operations * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,158 @@
+package notificationModule;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import config.JacksonConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationCodecTest {
+
+    private static final ObjectReader EVENT_READER = JacksonConfig.mapper().readerFor(NotificationEvent.class);
+
+    @Test
+    void standardMessageIsRenderedNotCarried() {
+        NotificationEvent decoded = roundTrip(event("LIKE", 1L, 2L, 3L, "Ann", 1, null));
+        assertEquals("Ann liked your post.", decoded.getMessage());
+        assertTrue(NotificationCodec.encode(event("LIKE", 1L, 2L, 3L, "Ann", 1, null)).length
+                < NotificationCodec.encode(event("LIKE", 1L, 2L, 3L, "Ann", 1, "Ann liked your post!")).length);
+    }
+
+    @Test
+    void customMessagesRoundTrip() {
+        // no template for the type
+        roundTrip(event("GROUP_JOIN", 4L, 5L, null, "Chloé Dubois", 1, "Chloé Dubois joined your group \"Weekend hikers\"."));
+        // a type with a template, but other text
+        roundTrip(event("COMMENT", 4L, 5L, 6L, "Ann", 1, "Ann replied to your comment."));
+    }
+
+    @Test
+    void edgeValuesRoundTrip() {
+        roundTrip(event("LIKE", Long.MAX_VALUE, 0L, 127L, "李小龙", 42, null));
+        roundTrip(event("FRIEND_REQUEST", 128L, 16_384L, null, "Dmitri Ivanov", 1, null));
+        roundTrip(event("GROUP_LEAVE", null, null, null, null, 1, null));
+    }
+
+    @Test
+    void typeWithoutCodeTravelsByName() {
+        roundTrip(event("MENTION", 7L, 8L, 9L, "Ann", 1, "Ann mentioned you."));
+        roundTrip(event("MENTION", 7L, 8L, null, null, 1, null));
+    }
+
+    @Test
+    void randomEventsRoundTrip() {
+        Random random = new Random(42);
+        String[] types = {"LIKE", "COMMENT", "FRIEND_REQUEST", "GROUP_JOIN", "GROUP_LEAVE", "MENTION"};
+        for (int i = 0; i < 10_000; i++) {
+            roundTrip(event(types[random.nextInt(types.length)],
+                    random.nextBoolean() ? random.nextLong() & Long.MAX_VALUE : null,
+                    random.nextBoolean() ? (long) random.nextInt(Integer.MAX_VALUE) : null,
+                    random.nextBoolean() ? (long) random.nextInt(1000) : null,
+                    random.nextBoolean() ? "User " + random.nextInt(100) : null,
+                    1 + random.nextInt(3),
+                    random.nextInt(4) == 0 ? "Message " + random.nextInt(100) : null));
+        }
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        byte[] valid = NotificationCodec.encode(event("COMMENT", 300L, 70_000L, 5L, "Bartholomew Okonkwo", 3, "Custom text."));
+        for (int length = 0; length < valid.length; length++) {
+            byte[] truncated = Arrays.copyOf(valid, length);
+            assertThrows(IllegalArgumentException.class, () -> NotificationCodec.decode(truncated),
+                    "truncated to " + length + " of " + valid.length + " bytes");
+        }
+    }
+
+    @Test
+    void rejectsUnknownVersionAndType() {
+        assertThrows(IllegalArgumentException.class,
+                () -> NotificationCodec.decode(new byte[]{(byte) (NotificationCodec.VERSION + 1), 3, 0}));
+        assertThrows(IllegalArgumentException.class, () -> NotificationCodec.decode(new byte[]{0, 3, 0}));
+        assertThrows(IllegalArgumentException.class,
+                () -> NotificationCodec.decode(new byte[]{NotificationCodec.VERSION, (byte) 200, 0}));
+    }
+
+    @Test
+    void rejectsBadVarints() {
+        // fromUserId whose varint never ends within 64 bits
+        byte[] tooLong = new byte[3 + 11];
+        tooLong[0] = NotificationCodec.VERSION;
+        tooLong[1] = 3;
+        tooLong[2] = 1;
+        Arrays.fill(tooLong, 3, tooLong.length, (byte) 0x80);
+        assertThrows(IllegalArgumentException.class, () -> NotificationCodec.decode(tooLong));
+
+        // actorName claiming more bytes than remain
+        assertThrows(IllegalArgumentException.class,
+                () -> NotificationCodec.decode(new byte[]{NotificationCodec.VERSION, 3, 1 << 4, 10, 'A', 'n', 'n'}));
+
+        // actorName whose length is negative as a long
+        byte[] negativeLength = new byte[3 + 10];
+        negativeLength[0] = NotificationCodec.VERSION;
+        negativeLength[1] = 3;
+        negativeLength[2] = 1 << 4;
+        Arrays.fill(negativeLength, 3, 12, (byte) 0xFF);
+        negativeLength[12] = 0x01;
+        assertThrows(IllegalArgumentException.class, () -> NotificationCodec.decode(negativeLength));
+    }
+
+    /** Field names and texts as the producers wrote them before the binary format. */
+    @Test
+    void readsJsonFromBeforeTheBinaryFormat() throws Exception {
+        NotificationEvent like = EVENT_READER.readValue("{\"eventType\":\"LIKE\",\"fromUserId\":1,\"toUserId\":2,"
+                + "\"postId\":3,\"message\":\"Ann liked your post.\"}");
+        assertSame(event("LIKE", 1L, 2L, 3L, null, 1, "Ann liked your post."), like);
+
+        NotificationEvent request = EVENT_READER.readValue("{\"eventType\":\"FRIEND_REQUEST\",\"fromUserId\":1,"
+                + "\"toUserId\":2,\"postId\":null,\"message\":\"Ann sent you a friend request.\"}");
+        assertSame(event("FRIEND_REQUEST", 1L, 2L, null, null, 1, "Ann sent you a friend request."), request);
+
+        NotificationEvent join = EVENT_READER.readValue("{\"eventType\":\"GROUP_JOIN\",\"fromUserId\":4,\"toUserId\":5,"
+                + "\"message\":\"Ann joined your group \\\"Weekend hikers\\\".\"}");
+        assertSame(event("GROUP_JOIN", 4L, 5L, null, null, 1, "Ann joined your group \"Weekend hikers\"."), join);
+
+        // without an actor name to render from, the text is carried through the binary format
+        assertSame(like, NotificationCodec.decode(NotificationCodec.encode(like)));
+    }
+
+    @Test
+    void readsJsonFromTheCurrentEvent() throws Exception {
+        NotificationEvent current = event("LIKE", 1L, 2L, 3L, "Ann", 5, null);
+        assertSame(current, EVENT_READER.readValue(JacksonConfig.mapper().writeValueAsString(current)));
+    }
+
+    private static NotificationEvent roundTrip(NotificationEvent event) {
+        NotificationEvent decoded = NotificationCodec.decode(NotificationCodec.encode(event));
+        assertSame(event, decoded);
+        return decoded;
+    }
+
+    private static void assertSame(NotificationEvent expected, NotificationEvent actual) {
+        assertEquals(expected.getEventType(), actual.getEventType(), "eventType");
+        assertEquals(expected.getFromUserId(), actual.getFromUserId(), "fromUserId");
+        assertEquals(expected.getToUserId(), actual.getToUserId(), "toUserId");
+        assertEquals(expected.getPostId(), actual.getPostId(), "postId");
+        assertEquals(expected.getActorCount(), actual.getActorCount(), "actorCount");
+        assertEquals(expected.getActorName(), actual.getActorName(), "actorName");
+        assertEquals(expected.getMessage(), actual.getMessage(), "message");
+    }
+
+    private static NotificationEvent event(String type, Long from, Long to, Long post, String actorName,
+                                           int actorCount, String message) {
+        NotificationEvent event = new NotificationEvent();
+        event.setEventType(type);
+        event.setFromUserId(from);
+        event.setToUserId(to);
+        event.setPostId(post);
+        event.setActorName(actorName);
+        event.setActorCount(actorCount);
+        event.setMessage(message);
+        return event;
+    }
+}